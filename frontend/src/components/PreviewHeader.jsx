@@ -13,7 +13,7 @@ export default function PreviewHeader({username, profilePicture, date}) {
                         height: "100%",
                         flexFlow: 1
                     }}>
-                        <Avatar alt={username} src={profilePicture}/>
+                        <Avatar alt={username} src={profilePicture && `http://localhost:8080${profilePicture}`}/>
                         <Typography align="left" variant="h5" marginLeft="1.5%" marginBottom="0px">
                             {username}
                         </Typography>
@@ -19,7 +19,7 @@ export default function Post() {
                 </Typography>
                 <Divider sx={{borderBottomWidth: 2}}/>
                 <Toolbar>
-                    <Avatar alt={post.username} src={post.profilePicture}/>
+                    <Avatar alt={post.username} src={post.profilePicture && `http://localhost:8080${post.profilePicture}`}/>
                     <Typography marginLeft="1.5%" variant="h5">
                         {post.username}
                     </Typography>
@@ -74,7 +74,7 @@ export default function Register() {
                             localStorage.setItem('user', JSON.stringify({
                                 username: response.data.username,
                                 following: response.data.following,
-                                profilePicture: response.data.profilePicture
+                                profilePicture: response.data.profilePicture && `http://localhost:8080${response.data.profilePicture}`
                             }));
                             window.location.href = '/'
                         }))
@@ -0,0 +1,111 @@
+package com.example.bloggingapp.benchmark;
+
+import com.example.bloggingapp.utils.HotScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+public class HotFeedBenchmark {
+    private static final int FEED_SIZE = 10;
+    private static final int USERS = 1000;
+    private static final String VIEWABLE = "p.is_deleted = false AND p.is_hidden = false AND p.is_deleted_by_admin = false AND u.is_private = false AND u.is_enabled = true AND u.is_deleted = false";
+
+    @Param("1000000")
+    public int posts;
+
+    private Connection connection;
+    private PreparedStatement topFeed;
+    private PreparedStatement hotFeed;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:hot-feed-benchmark;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table users (id bigint primary key, is_private bit not null, is_enabled bit not null, is_deleted bit not null)");
+            statement.execute("create table posts (id bigint primary key, rating int not null, user_id bigint not null, created_at datetime, is_deleted bit not null, is_hidden bit not null, is_deleted_by_admin bit not null, hot_score double not null)");
+        }
+        Random random = new Random(42);
+        try (PreparedStatement insert = connection.prepareStatement("insert into users values (?, ?, true, false)")) {
+            for (int id = 1; id <= USERS; id++) {
+                insert.setLong(1, id);
+                insert.setBoolean(2, random.nextInt(20) == 0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long span = TimeUnit.DAYS.toSeconds(3 * 365);
+        try (PreparedStatement insert = connection.prepareStatement("insert into posts values (?, ?, ?, ?, ?, false, false, ?)")) {
+            for (int id = 1; id <= posts; id++) {
+                long age = (long) (span * random.nextDouble());
+                LocalDateTime createdAt = now.minusSeconds(age);
+                // older posts have had more time to collect votes
+                int rating = (int) (random.nextGaussian() * 20 + age / 86400.0 * random.nextDouble());
+                insert.setLong(1, id);
+                insert.setInt(2, rating);
+                insert.setLong(3, 1 + random.nextInt(USERS));
+                insert.setTimestamp(4, Timestamp.valueOf(createdAt));
+                insert.setBoolean(5, random.nextInt(50) == 0);
+                insert.setDouble(6, HotScore.compute(rating, createdAt));
+                insert.addBatch();
+                if (id % 10000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create index idx_posts_feed on posts (is_deleted, is_hidden, is_deleted_by_admin, rating desc, id)");
+            statement.execute("create index idx_posts_hot on posts (is_deleted, is_hidden, is_deleted_by_admin, hot_score desc, id)");
+            statement.execute("create index idx_posts_created_at on posts (created_at)");
+            statement.execute("analyze");
+        }
+        topFeed = connection.prepareStatement("SELECT p.id FROM posts p JOIN users u ON u.id = p.user_id WHERE " + VIEWABLE + " ORDER BY p.rating DESC, p.id ASC LIMIT " + FEED_SIZE);
+        // h2 cannot estimate range selectivity and would otherwise pick the flag prefix of idx_posts_hot
+        hotFeed = connection.prepareStatement("SELECT p.id FROM posts p USE INDEX (idx_posts_created_at) JOIN users u ON u.id = p.user_id WHERE " + VIEWABLE + " AND p.created_at >= ? ORDER BY p.hot_score DESC, p.id ASC LIMIT " + FEED_SIZE);
+        hotFeed.setTimestamp(1, Timestamp.valueOf(now.minusDays(7)));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long topFeed() throws SQLException {
+        return read(topFeed);
+    }
+
+    @Benchmark
+    public long hotFeed() throws SQLException {
+        return read(hotFeed);
+    }
+
+    private static long read(PreparedStatement query) throws SQLException {
+        long sum = 0;
+        try (ResultSet result = query.executeQuery()) {
+            while (result.next()) {
+                sum += result.getLong(1);
+            }
+        }
+        return sum;
+    }
+}
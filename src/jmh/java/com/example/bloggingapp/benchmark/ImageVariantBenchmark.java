@@ -0,0 +1,91 @@
+package com.example.bloggingapp.benchmark;
+
+import com.example.bloggingapp.config.FileStorageConfig;
+import com.example.bloggingapp.enums.ImageSize;
+import com.example.bloggingapp.service.impl.ImageCache;
+import com.example.bloggingapp.service.impl.ImageServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+public class ImageVariantBenchmark {
+    private static final int FEED_SIZE = 10;
+
+    private Path dir;
+    private final List<String> names = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FeedBytes {
+        public long feeds;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            feeds = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("image-benchmark");
+        FileStorageConfig.PROFILE_PICTURE_DIR = dir.toString();
+        ImageServiceImpl imageService = new ImageServiceImpl(new ImageCache(DataSize.ofMegabytes(64), DataSize.ofMegabytes(1)));
+        Random random = new Random(42);
+        for (int i = 0; i < FEED_SIZE; i++) {
+            BufferedImage photo = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < photo.getHeight(); y++) {
+                for (int x = 0; x < photo.getWidth(); x++) {
+                    photo.setRGB(x, y, ((x * 255 / photo.getWidth()) << 16) | ((y * 255 / photo.getHeight()) << 8) | random.nextInt(64));
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(photo, "jpg", out);
+            names.add(imageService.save(new MockMultipartFile("profilePicture", "photo.jpg", "image/jpeg", out.toByteArray())));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public long feedWithOriginals(FeedBytes counters) throws IOException {
+        return readFeed(null, counters);
+    }
+
+    @Benchmark
+    public long feedWithThumbnails(FeedBytes counters) throws IOException {
+        return readFeed(ImageSize.SMALL, counters);
+    }
+
+    private long readFeed(ImageSize size, FeedBytes counters) throws IOException {
+        long total = 0;
+        for (String name : names) {
+            total += Files.readAllBytes(dir.resolve(size == null ? name : size.variantOf(name))).length;
+        }
+        counters.feeds++;
+        counters.bytes += total;
+        return total;
+    }
+}
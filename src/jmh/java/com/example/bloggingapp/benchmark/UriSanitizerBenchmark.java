@@ -0,0 +1,83 @@
+package com.example.bloggingapp.benchmark;
+
+import com.example.bloggingapp.utils.UriSanitizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+public class UriSanitizerBenchmark {
+    // titles with their post id, truncated the same way Slug.of does before encoding
+    private static final String[] TITLES = {
+            "Why I Switched From Vim To Emacs (And Back Again)-1024",
+            "10 Things Nobody Tells You About Sourdough-58213",
+            "Spring Boot & Hibernate: Lessons From Production-7",
+            "What's New In Java 21? A Quick Tour-991204",
+            "My First Marathon - Training Log, Week 12-44",
+            "Cheap Eats In Berlin: A Student's Guide-300125",
+            "Review: The Best Budget Mechanical Keyboards-6",
+            "Café Culture In Zürich, Explained-87120"
+    };
+
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        inputs = new String[TITLES.length];
+        for (int i = 0; i < TITLES.length; i++) {
+            int dash = TITLES[i].lastIndexOf('-');
+            inputs[i] = truncate(TITLES[i].substring(0, dash)) + TITLES[i].substring(dash);
+            if (!legacyEncode(inputs[i]).equals(UriSanitizer.encode(inputs[i]))) {
+                throw new IllegalStateException("Slugs differ for " + inputs[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(UriSanitizer.encode(input));
+        }
+    }
+
+    @Benchmark
+    public void legacyEncode(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(legacyEncode(input));
+        }
+    }
+
+    private static String truncate(String title) {
+        if (title.length() > 30 && title.charAt(30) != ' ') {
+            return title.substring(0, 31);
+        } else if (title.length() > 30) {
+            return title.substring(0, 30);
+        }
+        return title;
+    }
+
+    // the encoder as it was before the single pass rewrite
+    private static String legacyEncode(String input) {
+        StringBuilder sb = new StringBuilder();
+        input = input.toLowerCase();
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (isAllowedChar(c)) {
+                sb.append(c);
+            } else if (i > 0 && i < input.length() - 1 && input.charAt(i - 1) == ' ' && input.charAt(i + 1) == ' ') {
+                sb.deleteCharAt(sb.length() - 1);
+            }
+        }
+        return sb.toString().replaceAll(" ", "-");
+    }
+
+    private static boolean isAllowedChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '.' || c == '_' || c == '~' || c == ' ';
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.bloggingapp.controller;
 
+import com.example.bloggingapp.dto.ImageCacheStatsDto;
+import com.example.bloggingapp.dto.RatingBacklogDto;
 import com.example.bloggingapp.service.CommentService;
+import com.example.bloggingapp.service.ImageService;
 import com.example.bloggingapp.service.PostService;
 import com.example.bloggingapp.service.UserService;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -18,6 +22,7 @@ public class AdminController {
     private final UserService userService;
     private final PostService postService;
     private final CommentService commentService;
+    private final ImageService imageService;
 
     @PostMapping("/disable")
     public ResponseEntity<Void> disable(@NotBlank String username) {
@@ -54,4 +59,14 @@ public class AdminController {
         commentService.undeleteByAdmin(commentId);
         return ResponseEntity.ok().build();
     }
+
+    @GetMapping("/imageCache")
+    public ResponseEntity<ImageCacheStatsDto> imageCache() {
+        return ResponseEntity.ok(imageService.cacheStats());
+    }
+
+    @GetMapping("/ratingBacklog")
+    public ResponseEntity<RatingBacklogDto> ratingBacklog() {
+        return ResponseEntity.ok(postService.ratingBacklog());
+    }
 }
\ No newline at end of file
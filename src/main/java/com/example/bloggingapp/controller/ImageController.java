@@ -0,0 +1,41 @@
+package com.example.bloggingapp.controller;
+
+import com.example.bloggingapp.enums.ImageSize;
+import com.example.bloggingapp.service.ImageService;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/image")
+@Validated
+@RequiredArgsConstructor
+public class ImageController {
+    private final ImageService imageService;
+
+    @GetMapping("/{name}")
+    public ResponseEntity<Resource> getImage(
+            @PathVariable
+            @NotBlank(message = "Image name cannot be blank!") String name,
+            @RequestParam(required = false) Integer size
+    ) {
+        Resource image = imageService.load(name, size == null ? null : ImageSize.fromPixels(size));
+        return ResponseEntity.ok()
+                .eTag(image.getFilename())
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .contentType(MediaTypeFactory.getMediaType(image).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .body(image);
+    }
+}
@@ -1,19 +1,21 @@
 package com.example.bloggingapp.controller;
 
+import com.example.bloggingapp.annotation.validation.Between;
 import com.example.bloggingapp.dto.CommentDto;
+import com.example.bloggingapp.dto.CommentThreadDto;
 import com.example.bloggingapp.dto.PostDto;
 import com.example.bloggingapp.dto.PostPreviewDto;
+import com.example.bloggingapp.dto.PostPreviewRowDto;
 import com.example.bloggingapp.dto.request.CreatePostRequest;
-import com.example.bloggingapp.exception.UserNotFoundException;
+import com.example.bloggingapp.enums.FeedMode;
 import com.example.bloggingapp.mapper.CommentMapper;
 import com.example.bloggingapp.mapper.PostMapper;
 import com.example.bloggingapp.mapper.PostPreviewMapper;
-import com.example.bloggingapp.model.Comment;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.security.AuthContext;
 import com.example.bloggingapp.service.CommentService;
 import com.example.bloggingapp.service.PostService;
-import com.example.bloggingapp.service.UserService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -22,13 +24,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/post")
@@ -36,37 +36,34 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PostController {
     private final PostService postService;
-    private final UserService userService;
     private final CommentService commentService;
+    private final AuthContext authContext;
     private final CommentMapper commentMapper = CommentMapper.INSTANCE;
     private final PostMapper postMapper = PostMapper.INSTANCE;
     private final PostPreviewMapper postPreviewMapper = PostPreviewMapper.INSTANCE;
 
 
     @GetMapping("/")
-    public ResponseEntity<Set<PostPreviewDto>> getNPosts(
-            Authentication authentication
-    ) {
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        Integer numberOfPosts = 10;
-        Set<Post> posts = postService.findN(numberOfPosts, authUsername);
-        Set<PostPreviewDto> postPreviewDtos = new HashSet<>();
-        for (Post post : posts) {
-            postPreviewDtos.add(postPreviewMapper.toDto(post));
-        }
-        return ResponseEntity.ok(postPreviewDtos);
+    public ResponseEntity<List<PostPreviewDto>> getFeed(
+            @RequestParam(defaultValue = "TOP") FeedMode mode,
+            @RequestParam(required = false) Integer afterRating,
+            @RequestParam(required = false) Double afterScore,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "10")
+            @Between(min = 1, max = 50, message = "Size must be between 1 and 50!") Integer size
+    ) {
+        List<PostPreviewRowDto> posts = mode == FeedMode.HOT
+                ? postService.findHotFeed(afterScore, afterId, size, authContext)
+                : postService.findFeed(afterRating, afterId, size, authContext);
+        return ResponseEntity.ok(posts.stream().map(postPreviewMapper::toDto).toList());
     }
 
     @PostMapping("/create")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<PostDto> createPost(
-            Authentication authentication,
             @RequestBody @Valid CreatePostRequest request
     ) {
-        User user = userService.findByUsername(authentication.getName()).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        User user = authContext.getUser();
         Post post = postService.save(new Post(request.title(), request.content(), user, request.isHidden()));
         return ResponseEntity.status(HttpStatus.CREATED).body(postMapper.toDto(post));
     }
@@ -82,128 +79,113 @@ public class PostController {
     @GetMapping("/{post_uri}")
     public ResponseEntity<PostDto> getPost(
             @PathVariable(name = "post_uri")
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        Post post = postService.getPostForViewByURI(postURI, authUsername);
-        return ResponseEntity.ok(postMapper.toDto(post));
+        Post post = postService.getPostForViewByURI(postURI, authContext);
+        Set<CommentDto> comments = commentMapper.toTree(commentService.findThread(post, null, null, 10, authContext));
+        return ResponseEntity.ok(postMapper.toDto(post, comments, commentService.getViewableCommentCountByPost(post, authContext)));
     }
 
     @GetMapping("{post_uri}/comments")
     public ResponseEntity<Set<CommentDto>> comments(
             @PathVariable(name = "post_uri")
             @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @RequestParam(required = false) Integer afterRating,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "10")
+            @Between(min = 1, max = 50, message = "Size must be between 1 and 50!") Integer size
     ) {
-        Set<Comment> comments;
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        comments = commentService.findByParentPost(postURI, authUsername);
-        return ResponseEntity.ok(comments.stream().map(commentMapper::toDto).collect(Collectors.toSet()));
+        CommentThreadDto comments = commentService.findByParentPost(postURI, afterRating, afterId, size, authContext);
+        return ResponseEntity.ok(commentMapper.toTree(comments));
     }
 
     @PostMapping("/like")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> like(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.like(authentication.getName(), postId);
+        postService.like(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/removeLike")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> removeLike(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.removeLike(authentication.getName(), postId);
+        postService.removeLike(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/dislike")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> dislike(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.dislike(authentication.getName(), postId);
+        postService.dislike(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/removeDislike")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> removeDislike(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.removeDislike(authentication.getName(), postId);
+        postService.removeDislike(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/delete")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> tempDelete(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.tempDelete(authentication.getName(), postId);
+        postService.tempDelete(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/undelete")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> undelete(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.undelete(authentication.getName(), postId);
+        postService.undelete(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/hide")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> hide(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.hide(authentication.getName(), postId);
+        postService.hide(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/unhide")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> unhide(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.unhide(authentication.getName(), postId);
+        postService.unhide(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/permanentlyDelete")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> permanentlyDelete(
-            @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication
+            @NotBlank(message = "Post URI cannot be blank!") String postURI
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.permanentlyDelete(authentication.getName(), postId);
+        postService.permanentlyDelete(authContext, postId);
         return ResponseEntity.ok().build();
     }
 
@@ -211,12 +193,11 @@ public class PostController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> changeTitle(
             @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication,
             @NotBlank(message = "Title cannot be blank!")
             @Size(min = 5, max = 200, message = "Title must be between 5 and 200 characters long!") String newTitle
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.changeTitle(authentication.getName(), postId, newTitle);
+        postService.changeTitle(authContext, postId, newTitle);
         return ResponseEntity.ok().build();
     }
 
@@ -224,12 +205,11 @@ public class PostController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> changeContent(
             @NotBlank(message = "Post URI cannot be blank!") String postURI,
-            Authentication authentication,
             @NotBlank(message = "Content cannot be blank!")
             @Size(min = 100, max = 15000, message = "Content must be between 100 and 15000 characters long!") String newContent
     ) {
         Long postId = postService.getIdByURI(postURI);
-        postService.changeContent(authentication.getName(), postId, newContent);
+        postService.changeContent(authContext, postId, newContent);
         return ResponseEntity.ok().build();
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.example.bloggingapp.controller;
 
+import com.example.bloggingapp.annotation.validation.Between;
 import com.example.bloggingapp.dto.CommentDto;
+import com.example.bloggingapp.dto.CommentRowDto;
 import com.example.bloggingapp.dto.PostPreviewDto;
+import com.example.bloggingapp.dto.PostPreviewRowDto;
 import com.example.bloggingapp.dto.UserDto;
 import com.example.bloggingapp.dto.UserFollowDto;
 import com.example.bloggingapp.dto.request.EmailChangeRequest;
@@ -9,11 +12,9 @@ import com.example.bloggingapp.dto.request.PasswordChangeRequest;
 import com.example.bloggingapp.exception.UserNotFoundException;
 import com.example.bloggingapp.mapper.CommentMapper;
 import com.example.bloggingapp.mapper.PostPreviewMapper;
-import com.example.bloggingapp.mapper.UserFollowMapper;
 import com.example.bloggingapp.mapper.UserMapper;
-import com.example.bloggingapp.model.Comment;
-import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.security.AuthContext;
 import com.example.bloggingapp.service.CommentService;
 import com.example.bloggingapp.service.PostService;
 import com.example.bloggingapp.service.UserService;
@@ -24,13 +25,11 @@ import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.List;
 
 @RestController
 @RequestMapping("/user")
@@ -38,8 +37,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final AuthContext authContext;
     private final UserMapper userMapper = UserMapper.INSTANCE;
-    private final UserFollowMapper userFollowMapper = UserFollowMapper.INSTANCE;
     private final PostService postService;
     private final CommentService commentService;
     private final CommentMapper commentMapper = CommentMapper.INSTANCE;
@@ -49,141 +48,115 @@ public class UserController {
     @GetMapping("/{username}")
     public ResponseEntity<UserDto> getUser(
             @PathVariable
-            @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @NotBlank(message = "Username cannot be blank!") String username
     ) {
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        User user = userService.getUserForViewByUsername(username, authUsername);
+        User user = userService.getUserForViewByUsername(username, authContext);
         return ResponseEntity.ok(userMapper.toDto(user));
     }
 
     @GetMapping("/{username}/posts")
-    public ResponseEntity<Set<PostPreviewDto>> getPosts(
+    public ResponseEntity<List<PostPreviewDto>> getPosts(
             @PathVariable
             @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "10")
+            @Between(min = 1, max = 50, message = "Size must be between 1 and 50!") Integer size
     ) {
-        String authUsername;
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        } else {
-            authUsername = "";
-        }
-        Set<Post> posts = postService.findByUsername(username, authUsername);
-        return ResponseEntity.ok(posts.stream().map(postPreviewMapper::toDto).collect(Collectors.toSet()));
+        List<PostPreviewRowDto> posts = postService.findByUsername(username, afterId, size, authContext);
+        return ResponseEntity.ok(posts.stream().map(postPreviewMapper::toDto).toList());
     }
 
     @GetMapping("/{username}/comments")
-    public ResponseEntity<Set<CommentDto>> getComments(
+    public ResponseEntity<List<CommentDto>> getComments(
             @PathVariable
             @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "10")
+            @Between(min = 1, max = 50, message = "Size must be between 1 and 50!") Integer size
     ) {
         User user = userService.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        Set<Comment> comments = commentService.findByUser(user, authUsername);
-        return ResponseEntity.ok(comments.stream().map(commentMapper::toDto).collect(Collectors.toSet()));
+        List<CommentRowDto> comments = commentService.findByUser(user, afterId, size, authContext);
+        return ResponseEntity.ok(comments.stream().map(commentMapper::toDto).toList());
     }
 
     @GetMapping("{username}/followers")
-    public ResponseEntity<Set<UserFollowDto>> getFollowers(
+    public ResponseEntity<List<UserFollowDto>> getFollowers(
             @PathVariable
             @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @RequestParam(required = false) String afterUsername,
+            @RequestParam(defaultValue = "10")
+            @Between(min = 1, max = 50, message = "Size must be between 1 and 50!") Integer size
     ) {
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        Set<User> followers = userService.findFollowers(username, authUsername);
-        return ResponseEntity.ok(followers.stream().map(userFollowMapper::toDto).collect(Collectors.toSet()));
+        return ResponseEntity.ok(userService.findFollowers(username, afterUsername, size, authContext));
     }
 
     @GetMapping("{username}/following")
-    public ResponseEntity<Set<UserFollowDto>> getFollowing(
+    public ResponseEntity<List<UserFollowDto>> getFollowing(
             @PathVariable
             @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @RequestParam(required = false) String afterUsername,
+            @RequestParam(defaultValue = "10")
+            @Between(min = 1, max = 50, message = "Size must be between 1 and 50!") Integer size
     ) {
-        String authUsername = "";
-        if (authentication != null && authentication.isAuthenticated()) {
-            authUsername = authentication.getName();
-        }
-        Set<User> following = userService.findFollowing(username, authUsername);
-        return ResponseEntity.ok(following.stream().map(userFollowMapper::toDto).collect(Collectors.toSet()));
+        return ResponseEntity.ok(userService.findFollowing(username, afterUsername, size, authContext));
     }
 
     @PostMapping("/follow")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> follow(
-            @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @NotBlank(message = "Username cannot be blank!") String username
     ) {
-        userService.follow(username, authentication.getName());
+        userService.follow(username, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/unfollow")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> unfollow(
-            @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @NotBlank(message = "Username cannot be blank!") String username
     ) {
-        userService.unfollow(username, authentication.getName());
+        userService.unfollow(username, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/block")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> block(
-            @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @NotBlank(message = "Username cannot be blank!") String username
     ) {
-        userService.block(username, authentication.getName());
+        userService.block(username, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/unblock")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> unblock(
-            @NotBlank(message = "Username cannot be blank!") String username,
-            Authentication authentication
+            @NotBlank(message = "Username cannot be blank!") String username
     ) {
-        userService.unblock(username, authentication.getName());
+        userService.unblock(username, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/delete")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Void> tempDelete(
-            Authentication authentication
-    ) {
-        userService.tempDelete(authentication.getName());
+    public ResponseEntity<Void> tempDelete() {
+        userService.tempDelete(authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/undelete")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Void> undelete(
-            Authentication authentication
-    ) {
-        userService.undelete(authentication.getName());
+    public ResponseEntity<Void> undelete() {
+        userService.undelete(authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/permanentlyDelete")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> permanentlyDelete(
-            @NotBlank(message = "Password cannot be blank!") String password,
-            Authentication authentication
+            @NotBlank(message = "Password cannot be blank!") String password
     ) {
-        userService.permanentlyDelete(authentication.getName(), password);
+        userService.permanentlyDelete(authContext, password);
         return ResponseEntity.ok().build();
     }
 
@@ -192,68 +165,59 @@ public class UserController {
     public ResponseEntity<String> changeUsername(
             @NotBlank(message = "Username cannot be blank!")
             @Pattern(regexp = "^(?!.*('|\"|;|\\|/|%|--| )).*$", message = "Username cannot contain special characters or spaces!")
-            @Size(min = 3, max = 50, message = "Username must be between 3 and 50 characters!") String newUsername,
-            Authentication authentication
+            @Size(min = 3, max = 50, message = "Username must be between 3 and 50 characters!") String newUsername
     ) {
-        String newToken = userService.changeUsername(newUsername, authentication.getName());
+        String newToken = userService.changeUsername(newUsername, authContext);
         return ResponseEntity.ok().body(newToken);
     }
 
     @PostMapping("/changeEmail")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> changeEmail(
-            @RequestBody @Valid EmailChangeRequest request,
-            Authentication authentication
+            @RequestBody @Valid EmailChangeRequest request
     ) {
-        userService.changeEmail(request, authentication.getName());
+        userService.changeEmail(request, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/changePassword")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> changePassword(
-            @RequestBody @Valid PasswordChangeRequest request,
-            Authentication authentication
+            @RequestBody @Valid PasswordChangeRequest request
     ) {
-        userService.changePassword(request, authentication.getName());
+        userService.changePassword(request, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/changeDescription")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> changeDescription(
-            @Size(max = 200, message = "Description must be at most 200 characters!") String newDescription,
-            Authentication authentication
+            @Size(max = 200, message = "Description must be at most 200 characters!") String newDescription
     ) {
-        userService.changeDescription(newDescription, authentication.getName());
+        userService.changeDescription(newDescription, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/changeProfilePicture")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Void> changeProfilePicture(
-            MultipartFile newProfilePicture,
-            Authentication authentication
+            MultipartFile newProfilePicture
     ) {
-        userService.changeProfilePicture(newProfilePicture, authentication.getName());
+        userService.changeProfilePicture(newProfilePicture, authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/goPrivate")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Void> goPrivate(
-            Authentication authentication
-    ) {
-        userService.goPrivate(authentication.getName());
+    public ResponseEntity<Void> goPrivate() {
+        userService.goPrivate(authContext);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/goPublic")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Void> goPublic(
-            Authentication authentication
-    ) {
-        userService.goPublic(authentication.getName());
+    public ResponseEntity<Void> goPublic() {
+        userService.goPublic(authContext);
         return ResponseEntity.ok().build();
     }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ public record CommentDto(
         String username,
         Integer rating,
         LocalDateTime createdAt,
-        Set<CommentDto> comments
+        Set<CommentDto> comments,
+        Boolean hasMoreReplies
 ) {
 }
\ No newline at end of file
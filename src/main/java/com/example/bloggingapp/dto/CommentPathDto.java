@@ -0,0 +1,8 @@
+package com.example.bloggingapp.dto;
+
+public record CommentPathDto(
+        Long id,
+        String parentPath,
+        Integer parentDepth
+) {
+}
@@ -0,0 +1,21 @@
+package com.example.bloggingapp.dto;
+
+import java.time.LocalDateTime;
+
+public record CommentRowDto(
+        Long id,
+        Long parentId,
+        Integer depth,
+        String content,
+        Long userId,
+        String username,
+        Integer rating,
+        LocalDateTime createdAt,
+        Boolean isDeleted,
+        Boolean isHidden,
+        Boolean isDeletedByAdmin,
+        Boolean isUserPrivate,
+        Boolean isUserDeleted,
+        Boolean isUserEnabled
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.bloggingapp.dto;
+
+import java.util.List;
+import java.util.Set;
+
+public record CommentThreadDto(
+        List<CommentRowDto> comments,
+        Set<Long> truncatedIds
+) {
+}
@@ -0,0 +1,8 @@
+package com.example.bloggingapp.dto;
+
+public record FollowCountDto(
+        Long id,
+        Long followerCount,
+        Long followingCount
+) {
+}
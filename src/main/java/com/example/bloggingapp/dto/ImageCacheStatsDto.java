@@ -0,0 +1,12 @@
+package com.example.bloggingapp.dto;
+
+public record ImageCacheStatsDto(
+        long hitCount,
+        long missCount,
+        double hitRate,
+        long evictionCount,
+        long entryCount,
+        long weightedSize,
+        long maximumSize
+) {
+}
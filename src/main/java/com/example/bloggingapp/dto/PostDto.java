@@ -11,6 +11,7 @@ public record PostDto(
         String username,
         String profilePicture,
         Integer rating,
+        Integer commentCount,
         LocalDateTime createdAt,
         Set<CommentDto> comments
 ) {
@@ -0,0 +1,10 @@
+package com.example.bloggingapp.dto;
+
+import java.time.LocalDateTime;
+
+public record PostHotScoreDto(
+        Long id,
+        int rating,
+        LocalDateTime createdAt
+) {
+}
@@ -8,6 +8,8 @@ public record PostPreviewDto(
         String username,
         String profilePicture,
         Integer rating,
+        Integer commentCount,
+        Double hotScore,
         LocalDate date
 ) {
 }
\ No newline at end of file
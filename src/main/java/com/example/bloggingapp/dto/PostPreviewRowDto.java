@@ -0,0 +1,15 @@
+package com.example.bloggingapp.dto;
+
+import java.time.LocalDateTime;
+
+public record PostPreviewRowDto(
+        Long id,
+        String title,
+        String username,
+        String profilePictureName,
+        Integer rating,
+        Integer commentCount,
+        Double hotScore,
+        LocalDateTime createdAt
+) {
+}
@@ -0,0 +1,8 @@
+package com.example.bloggingapp.dto;
+
+public record PostRankDto(
+        Long id,
+        int rating,
+        Long userId
+) {
+}
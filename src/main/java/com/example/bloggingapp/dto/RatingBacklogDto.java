@@ -0,0 +1,11 @@
+package com.example.bloggingapp.dto;
+
+public record RatingBacklogDto(
+        long pendingPosts,
+        long pendingComments,
+        long pendingChange,
+        long flushCount,
+        long flushedRows,
+        long failedFlushCount
+) {
+}
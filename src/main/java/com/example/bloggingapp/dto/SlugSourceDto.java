@@ -0,0 +1,7 @@
+package com.example.bloggingapp.dto;
+
+public record SlugSourceDto(
+        Long id,
+        String text
+) {
+}
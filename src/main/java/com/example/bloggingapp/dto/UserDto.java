@@ -1,13 +1,11 @@
 package com.example.bloggingapp.dto;
 
-import java.util.Set;
-
 public record UserDto(
         String username,
         String profilePicture,
         String description,
-        Set<UserFollowDto> followers,
-        Set<UserFollowDto> following,
+        Integer followerCount,
+        Integer followingCount,
         boolean isUserBlocked,
         boolean isAuthUserBlocked
 ) {
@@ -0,0 +1,6 @@
+package com.example.bloggingapp.enums;
+
+public enum FeedMode {
+    TOP,
+    HOT
+}
@@ -0,0 +1,32 @@
+package com.example.bloggingapp.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum ImageSize {
+    SMALL(48),
+    MEDIUM(128),
+    LARGE(512);
+    private final int pixels;
+
+    ImageSize(int pixels) {
+        this.pixels = pixels;
+    }
+
+    public static ImageSize fromPixels(int pixels) {
+        for (ImageSize size : values()) {
+            if (size.pixels == pixels) {
+                return size;
+            }
+        }
+        throw new IllegalArgumentException("Invalid image size!");
+    }
+
+    public String variantOf(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return name + "_" + pixels;
+        }
+        return name.substring(0, dot) + "_" + pixels + name.substring(dot);
+    }
+}
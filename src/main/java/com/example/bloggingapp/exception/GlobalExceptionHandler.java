@@ -87,6 +87,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(403).body(ex.getMessage());
     }
 
+    @ExceptionHandler(ImageNotFoundException.class)
+    public ResponseEntity<String> handleImageNotFoundException(ImageNotFoundException ex) {
+        return ResponseEntity.status(404).body(ex.getMessage());
+    }
+
     @ExceptionHandler(InvalidImageException.class)
     public ResponseEntity<String> handleInvalidImageException(InvalidImageException ex) {
         return ResponseEntity.status(400).body(ex.getMessage());
@@ -0,0 +1,7 @@
+package com.example.bloggingapp.exception;
+
+public class ImageNotFoundException extends RuntimeException {
+    public ImageNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -1,17 +1,58 @@
 package com.example.bloggingapp.mapper;
 
 import com.example.bloggingapp.dto.CommentDto;
+import com.example.bloggingapp.dto.CommentRowDto;
+import com.example.bloggingapp.dto.CommentThreadDto;
 import com.example.bloggingapp.model.Comment;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Mapper
 public interface CommentMapper {
     CommentMapper INSTANCE = Mappers.getMapper(CommentMapper.class);
 
     @Mapping(target = "username", source = "user.username")
+    @Mapping(target = "hasMoreReplies", ignore = true)
     CommentDto toDto(Comment comment);
 
     Comment toEntity(CommentDto commentDto);
-}
\ No newline at end of file
+
+    default CommentDto toDto(CommentRowDto comment) {
+        return new CommentDto(comment.id(), comment.content(), comment.username(), comment.rating(), comment.createdAt(), Set.of(), null);
+    }
+
+    default Set<CommentDto> toTree(CommentThreadDto thread) {
+        Map<Long, List<CommentRowDto>> replies = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        for (CommentRowDto comment : thread.comments()) {
+            ids.add(comment.id());
+        }
+        List<CommentRowDto> roots = new ArrayList<>();
+        for (CommentRowDto comment : thread.comments()) {
+            if (ids.contains(comment.parentId())) {
+                replies.computeIfAbsent(comment.parentId(), id -> new ArrayList<>()).add(comment);
+            } else {
+                roots.add(comment);
+            }
+        }
+        return toTree(roots, replies, thread.truncatedIds());
+    }
+
+    private Set<CommentDto> toTree(List<CommentRowDto> comments, Map<Long, List<CommentRowDto>> replies, Set<Long> truncatedIds) {
+        Set<CommentDto> tree = new LinkedHashSet<>();
+        for (CommentRowDto comment : comments) {
+            Set<CommentDto> children = toTree(replies.getOrDefault(comment.id(), List.of()), replies, truncatedIds);
+            tree.add(new CommentDto(comment.id(), comment.content(), comment.username(), comment.rating(), comment.createdAt(), children, truncatedIds.contains(comment.id())));
+        }
+        return tree;
+    }
+}
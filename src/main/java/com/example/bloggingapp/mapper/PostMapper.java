@@ -1,16 +1,25 @@
 package com.example.bloggingapp.mapper;
 
+import com.example.bloggingapp.dto.CommentDto;
 import com.example.bloggingapp.dto.PostDto;
 import com.example.bloggingapp.model.Post;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
+import java.util.Set;
+
 @Mapper(uses = {CommentMapper.class, UserMapper.class})
 public interface PostMapper {
     PostMapper INSTANCE = Mappers.getMapper(PostMapper.class);
 
     @Mapping(target = "username", source = "user.username")
-    @Mapping(target = "profilePicture", source = "post.user", qualifiedByName = "mapProfilePicture")
+    @Mapping(target = "profilePicture", source = "post.user", qualifiedByName = "mapProfilePictureThumbnail")
     PostDto toDto(Post post);
+
+    @Mapping(target = "username", source = "post.user.username")
+    @Mapping(target = "profilePicture", source = "post.user", qualifiedByName = "mapProfilePictureThumbnail")
+    @Mapping(target = "comments", source = "comments")
+    @Mapping(target = "commentCount", source = "commentCount")
+    PostDto toDto(Post post, Set<CommentDto> comments, Integer commentCount);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.bloggingapp.mapper;
 
 import com.example.bloggingapp.dto.PostPreviewDto;
+import com.example.bloggingapp.dto.PostPreviewRowDto;
 import com.example.bloggingapp.model.Post;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -16,9 +17,13 @@ public interface PostPreviewMapper {
 
     @Mapping(target = "username", source = "post.user.username")
     @Mapping(target = "date", source = "post.createdAt", qualifiedByName = "localDateTimeToLocalDate")
-    @Mapping(target = "profilePicture", source = "post.user", qualifiedByName = "mapProfilePicture")
+    @Mapping(target = "profilePicture", source = "post.user", qualifiedByName = "mapProfilePictureThumbnail")
     PostPreviewDto toDto(Post post);
 
+    @Mapping(target = "date", source = "createdAt", qualifiedByName = "localDateTimeToLocalDate")
+    @Mapping(target = "profilePicture", source = "profilePictureName", qualifiedByName = "mapProfilePictureNameThumbnail")
+    PostPreviewDto toDto(PostPreviewRowDto post);
+
     @Named("localDateTimeToLocalDate")
     default LocalDate localDateTimeToLocalDate(LocalDateTime localDateTime) {
         return localDateTime.toLocalDate();
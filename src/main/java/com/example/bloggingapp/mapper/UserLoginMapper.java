@@ -10,7 +10,7 @@ import org.mapstruct.factory.Mappers;
 public interface UserLoginMapper {
     UserLoginMapper INSTANCE = Mappers.getMapper(UserLoginMapper.class);
 
-    @Mapping(target = "profilePicture", source = "user", qualifiedByName = "mapProfilePicture")
+    @Mapping(target = "profilePicture", source = "user", qualifiedByName = "mapProfilePictureThumbnail")
     @Mapping(target = "token", source = "token")
     UserLoginDto toDto(User user, String token);
 }
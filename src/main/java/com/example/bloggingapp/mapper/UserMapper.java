@@ -1,13 +1,14 @@
 package com.example.bloggingapp.mapper;
 
 import com.example.bloggingapp.dto.UserDto;
+import com.example.bloggingapp.enums.ImageSize;
 import com.example.bloggingapp.model.User;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
-@Mapper(uses = {UserFollowMapper.class})
+@Mapper
 public interface UserMapper {
     UserMapper INSTANCE = Mappers.getMapper(UserMapper.class);
 
@@ -18,16 +19,27 @@ public interface UserMapper {
 
     @Named("mapProfilePicture")
     default String mapProfilePicture(User user) {
-        String profilePictureName = user.getProfilePictureName();
+        return profilePictureUri(user, ImageSize.MEDIUM);
+    }
+
+    @Named("mapProfilePictureThumbnail")
+    default String mapProfilePictureThumbnail(User user) {
+        return profilePictureUri(user, ImageSize.SMALL);
+    }
+
+    @Named("mapProfilePictureNameThumbnail")
+    default String mapProfilePictureNameThumbnail(String profilePictureName) {
+        return profilePictureUri(profilePictureName, ImageSize.SMALL);
+    }
+
+    default String profilePictureUri(User user, ImageSize size) {
+        return profilePictureUri(user.getProfilePictureName(), size);
+    }
+
+    default String profilePictureUri(String profilePictureName, ImageSize size) {
         if (profilePictureName == null) {
             return null;
         }
-        if (profilePictureName.endsWith(".jpg")) {
-            return "data:image/jpg;base64," + user.getProfilePicture();
-        }
-        if (profilePictureName.endsWith(".png")) {
-            return "data:image/png;base64," + user.getProfilePicture();
-        }
-        return "data:image/jpeg;base64," + user.getProfilePicture();
+        return "/image/" + profilePictureName + "?size=" + size.getPixels();
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.example.bloggingapp.model;
 
+import com.example.bloggingapp.utils.CommentPath;
+import com.example.bloggingapp.utils.Slug;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -9,12 +11,19 @@ import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_path", columnList = "path"),
+        @Index(name = "idx_comments_slug", columnList = "slug, id", unique = true),
+        @Index(name = "idx_comments_user_created_at", columnList = "user_id, created_at DESC, id DESC"),
+        @Index(name = "idx_comments_post_rating", columnList = "parent_post_id, parent_comment_id, rating DESC, id"),
+        @Index(name = "idx_comments_parent_rating", columnList = "parent_comment_id, rating DESC, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,6 +34,8 @@ public class Comment {
     @NotBlank
     @Size(min = 1, max = 1000)
     private String content;
+    @Column(length = Slug.MAX_LENGTH)
+    private String slug;
     private int rating = 0;
     @ManyToOne
     private User user;
@@ -34,6 +45,9 @@ public class Comment {
     private Comment parentComment;
     @OneToMany(cascade = CascadeType.REMOVE, orphanRemoval = true, mappedBy = "parentComment")
     private Set<Comment> comments;
+    @Column(length = CommentPath.MAX_LENGTH)
+    private String path;
+    private int depth = 0;
     private final LocalDateTime createdAt = LocalDateTime.now();
     @Accessors(prefix = "is")
     private Boolean isDeleted = false;
@@ -41,20 +55,11 @@ public class Comment {
     private Boolean isHidden = false;
     @Accessors(prefix = "is")
     private Boolean isDeletedByAdmin = false;
-    @ManyToMany
-    @JoinTable(
-            name = "comment_likes",
-            joinColumns = @JoinColumn(name = "comment_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
-    )
-    private Set<User> likedBy;
-    @ManyToMany
-    @JoinTable(
-            name = "comment_dislikes",
-            joinColumns = @JoinColumn(name = "comment_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
-    )
-    private Set<User> dislikedBy;
+    @ElementCollection
+    @CollectionTable(name = "comment_reactions", joinColumns = @JoinColumn(name = "comment_id"), uniqueConstraints = @UniqueConstraint(name = "uk_comment_reactions_comment_id_user_id", columnNames = {"comment_id", "user_id"}))
+    @MapKeyJoinColumn(name = "user_id")
+    @Column(name = "reaction")
+    private Map<User, Integer> reactions;
 
     public Comment(String content, User user, Post parentPost) {
         this.content = content;
@@ -75,33 +80,35 @@ public class Comment {
             return "Comment{" +
                     "id=" + id +
                     ", content='" + content + '\'' +
+                    ", slug='" + slug + '\'' +
                     ", rating=" + rating +
                     ", user=" + user.getId() +
                     ", parentPost=" + parentPost.getId() +
                     ", parentComment=" + parentComment.getId() +
+                    ", path='" + path + '\'' +
                     ", comments=" + comments +
                     ", createdAt=" + createdAt +
                     ", isDeleted=" + isDeleted +
                     ", isHidden=" + isHidden +
                     ", isDeletedByAdmin=" + isDeletedByAdmin +
-                    ", likedBy=" + likedBy +
-                    ", dislikedBy=" + dislikedBy +
+                    ", reactions=" + reactions.entrySet().stream().collect(Collectors.toMap(reaction -> reaction.getKey().getId(), Map.Entry::getValue)) +
                     '}';
         }
         return "Comment{" +
                 "id=" + id +
                 ", content='" + content + '\'' +
+                ", slug='" + slug + '\'' +
                 ", rating=" + rating +
                 ", user=" + user.getId() +
                 ", parentPost=" + parentPost.getId() +
                 ", parentComment=null" +
+                ", path='" + path + '\'' +
                 ", comments=" + comments +
                 ", createdAt=" + createdAt +
                 ", isDeleted=" + isDeleted +
                 ", isHidden=" + isHidden +
                 ", isDeletedByAdmin=" + isDeletedByAdmin +
-                ", likedBy=" + likedBy.stream().map(User::getId).collect(Collectors.toSet()) +
-                ", dislikedBy=" + dislikedBy.stream().map(User::getId).collect(Collectors.toSet()) +
+                ", reactions=" + reactions.entrySet().stream().collect(Collectors.toMap(reaction -> reaction.getKey().getId(), Map.Entry::getValue)) +
                 '}';
 
     }
@@ -0,0 +1,22 @@
+package com.example.bloggingapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// marks one-off data copies as done, so startup runners never repeat them
+@Entity
+@Table(name = "data_migrations")
+@NoArgsConstructor
+@Getter
+public class DataMigration {
+    @Id
+    @Column(length = 100)
+    private String name;
+    private LocalDateTime completedAt;
+}
@@ -1,5 +1,7 @@
 package com.example.bloggingapp.model;
 
+import com.example.bloggingapp.utils.HotScore;
+import com.example.bloggingapp.utils.Slug;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -9,11 +11,18 @@ import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_feed", columnList = "is_deleted, is_hidden, is_deleted_by_admin, rating DESC, id"),
+        @Index(name = "idx_posts_hot", columnList = "is_deleted, is_hidden, is_deleted_by_admin, hot_score DESC, id"),
+        @Index(name = "idx_posts_created_at", columnList = "created_at"),
+        @Index(name = "idx_posts_slug", columnList = "slug, id", unique = true),
+        @Index(name = "idx_posts_user_created_at", columnList = "user_id, created_at DESC, id DESC")
+})
 @NoArgsConstructor
 @Getter
 @Setter
@@ -27,32 +36,27 @@ public class Post {
     @NotBlank
     @Size(min = 100, max = 15000)
     private String content;
+    @Column(length = Slug.MAX_LENGTH)
+    private String slug;
     private int rating = 0;
+    private Integer commentCount = 0;
     @ManyToOne
     private User user;
     @OneToMany(cascade = CascadeType.REMOVE, orphanRemoval = true, mappedBy = "parentPost")
     private Set<Comment> comments;
     private final LocalDateTime createdAt = LocalDateTime.now();
+    private double hotScore = HotScore.compute(0, createdAt);
     @Accessors(prefix = "is")
     private Boolean isDeleted = false;
     @Accessors(prefix = "is")
     private Boolean isHidden = false;
     @Accessors(prefix = "is")
     private Boolean isDeletedByAdmin = false;
-    @ManyToMany
-    @JoinTable(
-            name = "post_likes",
-            joinColumns = @JoinColumn(name = "post_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
-    )
-    private Set<User> likedBy;
-    @ManyToMany
-    @JoinTable(
-            name = "post_dislikes",
-            joinColumns = @JoinColumn(name = "post_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
-    )
-    private Set<User> dislikedBy;
+    @ElementCollection
+    @CollectionTable(name = "post_reactions", joinColumns = @JoinColumn(name = "post_id"), uniqueConstraints = @UniqueConstraint(name = "uk_post_reactions_post_id_user_id", columnNames = {"post_id", "user_id"}))
+    @MapKeyJoinColumn(name = "user_id")
+    @Column(name = "reaction")
+    private Map<User, Integer> reactions;
 
     public Post(String title, String content, User user, Boolean isHidden) {
         this.title = title;
@@ -67,15 +71,17 @@ public class Post {
                 "id=" + id +
                 ", title='" + title + '\'' +
                 ", content='" + content + '\'' +
+                ", slug='" + slug + '\'' +
                 ", rating=" + rating +
+                ", commentCount=" + commentCount +
                 ", user=" + user.getId() +
                 ", comments=" + comments +
                 ", createdAt=" + createdAt +
+                ", hotScore=" + hotScore +
                 ", isDeleted=" + isDeleted +
                 ", isHidden=" + isHidden +
                 ", isDeletedByAdmin=" + isDeletedByAdmin +
-                ", likedBy=" + likedBy.stream().map(User::getId).collect(Collectors.toSet()) +
-                ", dislikedBy=" + dislikedBy.stream().map(User::getId).collect(Collectors.toSet()) +
+                ", reactions=" + reactions.entrySet().stream().collect(Collectors.toMap(reaction -> reaction.getKey().getId(), Map.Entry::getValue)) +
                 '}';
     }
 }
@@ -1,6 +1,5 @@
 package com.example.bloggingapp.model;
 
-import com.example.bloggingapp.config.FileStorageConfig;
 import com.example.bloggingapp.enums.Role;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
@@ -10,12 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.util.Base64;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -52,12 +46,17 @@ public class User {
     @Column(name = "profile_picture_name")
     @Size(max = 50)
     private String profilePictureName;
+    private Integer followerCount = 0;
+    private Integer followingCount = 0;
 
+    // the unique key is declared because ddl-auto=update never adds a primary key to an existing table, the index serves the following side
     @ManyToMany
     @JoinTable(
             name = "followers",
             joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "parent_id")
+            inverseJoinColumns = @JoinColumn(name = "parent_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_followers_user_id_parent_id", columnNames = {"user_id", "parent_id"}),
+            indexes = @Index(name = "idx_followers_parent_id", columnList = "parent_id, user_id")
     )
     private Set<User> followers;
 
@@ -78,32 +77,6 @@ public class User {
     @OneToMany(orphanRemoval = true, mappedBy = "user")
     private Set<Comment> comments;
 
-    @ManyToMany(mappedBy = "likedBy")
-    private Set<Post> likedPosts;
-
-    @ManyToMany(mappedBy = "dislikedBy")
-    private Set<Post> dislikedPosts;
-
-    @ManyToMany(mappedBy = "likedBy")
-    private Set<Comment> likedComments;
-
-    @ManyToMany(mappedBy = "dislikedBy")
-    private Set<Comment> dislikedComments;
-
-
-    public String getProfilePicture() {
-        if (this.profilePictureName == null) {
-            return null;
-        }
-        String profilePicturePath = this.profilePictureName;
-        Path path = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, profilePicturePath);
-        try {
-            return Base64.getEncoder().encodeToString(Files.readAllBytes(path));
-        } catch (IOException ex) {
-            return null;
-        }
-    }
-
     public User(String username, String email, String password, String description, String profilePictureName, boolean isPrivate) {
         this.username = username;
         this.email = email;
@@ -126,15 +99,11 @@ public class User {
                 ", isEnabled=" + isEnabled +
                 ", isDeleted=" + isDeleted +
                 ", roles=" + roles +
-                ", followers=" + followers.stream().map(User::getId).collect(Collectors.toSet()) +
-                ", following=" + following.stream().map(User::getId).collect(Collectors.toSet()) +
+                ", followerCount=" + followerCount +
+                ", followingCount=" + followingCount +
                 ", blockedUsers=" + blockedUsers.stream().map(User::getId).collect(Collectors.toSet()) +
                 ", posts=" + posts +
                 ", comments=" + comments +
-                ", likedPosts=" + likedPosts +
-                ", dislikedPosts=" + dislikedPosts +
-                ", likedComments=" + likedComments +
-                ", dislikedComments=" + dislikedComments +
                 '}';
     }
 }
@@ -1,58 +1,116 @@
 package com.example.bloggingapp.repository;
 
+import com.example.bloggingapp.dto.CommentPathDto;
+import com.example.bloggingapp.dto.CommentRowDto;
+import com.example.bloggingapp.dto.SlugSourceDto;
 import com.example.bloggingapp.model.Comment;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.utils.CommentPath;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Set;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    @Query("SELECT c FROM Comment c WHERE c.user=:user")
-    Set<Comment> findByUser(User user);
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(c.id, c.parentComment.id, c.depth, c.content, u.id, u.username, c.rating, c.createdAt, c.isDeleted, c.isHidden, c.isDeletedByAdmin, u.isPrivate, u.isDeleted, u.isEnabled) FROM Comment c JOIN c.user u WHERE u = :user AND (:is_owner = true OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false)) AND (:after_id IS NULL OR c.createdAt < (SELECT a.createdAt FROM Comment a WHERE a.id = :after_id) OR (c.createdAt = (SELECT a2.createdAt FROM Comment a2 WHERE a2.id = :after_id) AND c.id < :after_id)) ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentRowDto> findRowsByUser(User user, @Param("is_owner") boolean isOwner, @Param("after_id") Long afterId, Limit limit);
 
-    @Query("SELECT c FROM Comment c WHERE c.parentPost = :post AND c.parentComment IS NULL ORDER BY c.rating DESC")
-    Set<Comment> findByParentPost(Post post);
+    @Query("SELECT c FROM Comment c WHERE c.slug = :slug")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Optional<Comment> findBySlug(String slug);
 
-    @Query("SELECT c FROM Comment c WHERE c.parentComment = :comment ORDER BY c.rating DESC")
-    Set<Comment> findByParentComment(Comment comment);
+    @Query("SELECT c.id FROM Comment c WHERE c.slug = :slug")
+    Optional<Long> findIdBySlug(String slug);
 
-    @Query("SELECT COUNT(*) FROM Comment c WHERE c.parentPost= :post AND c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin=false AND c.user.isPrivate = false AND c.user.isDeleted=false AND c.user.isEnabled = true")
-    Integer getViewableCommentCountByPost(Post post);
+    // the slug only uses the first 31 characters of the content
+    @Query("SELECT SUBSTRING(c.content, 1, 31) FROM Comment c WHERE c.id = :id AND c.slug IS NULL")
+    Optional<String> findUnsluggedContentPrefixById(Long id);
 
-    @Query("SELECT COUNT(*) FROM Comment c WHERE c.parentPost=:post AND c.isDeleted = false AND c.isHidden = false AND (c.isDeletedByAdmin=false AND c.user.isPrivate = false AND c.user.isDeleted=false AND c.user.isEnabled = true OR c.user=:auth_user) AND NOT EXISTS ( SELECT 1 FROM User u JOIN u.blockedUsers bu WHERE u=c.user AND bu=:auth_user) AND NOT EXISTS ( SELECT 1 FROM User u2 JOIN u2.blockedUsers bu2 WHERE u2=:auth_user AND bu2=c.user)")
-    Integer getViewableCommentCountByPostAuth(Post post, @Param("auth_user") User authUser);
+    @Query("SELECT new com.example.bloggingapp.dto.SlugSourceDto(c.id, SUBSTRING(c.content, 1, 31)) FROM Comment c WHERE c.slug IS NULL")
+    List<SlugSourceDto> findUnslugged(Limit limit);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(c.id, c.parentComment.id, c.depth, c.content, u.id, u.username, c.rating, c.createdAt, c.isDeleted, c.isHidden, c.isDeletedByAdmin, u.isPrivate, u.isDeleted, u.isEnabled) FROM Comment c JOIN c.user u WHERE c.parentPost = :post AND c.parentComment IS NULL AND (u.id = :auth_user_id OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User b JOIN b.blockedUsers bu WHERE b=u AND bu.id=:auth_user_id) AND NOT EXISTS ( SELECT 1 FROM User b2 JOIN b2.blockedUsers bu2 WHERE b2.id=:auth_user_id AND bu2=u))) ORDER BY c.rating DESC, c.id ASC")
+    List<CommentRowDto> findRootPage(Post post, @Param("auth_user_id") Long authUserId, Limit limit);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(c.id, c.parentComment.id, c.depth, c.content, u.id, u.username, c.rating, c.createdAt, c.isDeleted, c.isHidden, c.isDeletedByAdmin, u.isPrivate, u.isDeleted, u.isEnabled) FROM Comment c JOIN c.user u WHERE c.parentPost = :post AND c.parentComment IS NULL AND (u.id = :auth_user_id OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User b JOIN b.blockedUsers bu WHERE b=u AND bu.id=:auth_user_id) AND NOT EXISTS ( SELECT 1 FROM User b2 JOIN b2.blockedUsers bu2 WHERE b2.id=:auth_user_id AND bu2=u))) AND (c.rating < :after_rating OR (c.rating = :after_rating AND c.id > :after_id)) ORDER BY c.rating DESC, c.id ASC")
+    List<CommentRowDto> findRootPageAfter(Post post, @Param("auth_user_id") Long authUserId, @Param("after_rating") int afterRating, @Param("after_id") Long afterId, Limit limit);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(c.id, c.parentComment.id, c.depth, c.content, u.id, u.username, c.rating, c.createdAt, c.isDeleted, c.isHidden, c.isDeletedByAdmin, u.isPrivate, u.isDeleted, u.isEnabled) FROM Comment c JOIN c.user u WHERE c.parentComment = :comment AND (u.id = :auth_user_id OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User b JOIN b.blockedUsers bu WHERE b=u AND bu.id=:auth_user_id) AND NOT EXISTS ( SELECT 1 FROM User b2 JOIN b2.blockedUsers bu2 WHERE b2.id=:auth_user_id AND bu2=u))) ORDER BY c.rating DESC, c.id ASC")
+    List<CommentRowDto> findReplyPage(Comment comment, @Param("auth_user_id") Long authUserId, Limit limit);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(c.id, c.parentComment.id, c.depth, c.content, u.id, u.username, c.rating, c.createdAt, c.isDeleted, c.isHidden, c.isDeletedByAdmin, u.isPrivate, u.isDeleted, u.isEnabled) FROM Comment c JOIN c.user u WHERE c.parentComment = :comment AND (u.id = :auth_user_id OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User b JOIN b.blockedUsers bu WHERE b=u AND bu.id=:auth_user_id) AND NOT EXISTS ( SELECT 1 FROM User b2 JOIN b2.blockedUsers bu2 WHERE b2.id=:auth_user_id AND bu2=u))) AND (c.rating < :after_rating OR (c.rating = :after_rating AND c.id > :after_id)) ORDER BY c.rating DESC, c.id ASC")
+    List<CommentRowDto> findReplyPageAfter(Comment comment, @Param("auth_user_id") Long authUserId, @Param("after_rating") int afterRating, @Param("after_id") Long afterId, Limit limit);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(r.id, r.parentId, r.depth, r.content, r.userId, r.username, r.rating, r.createdAt, r.isDeleted, r.isHidden, r.isDeletedByAdmin, r.isUserPrivate, r.isUserDeleted, r.isUserEnabled) FROM (SELECT c.id AS id, c.parentComment.id AS parentId, c.depth AS depth, c.content AS content, u.id AS userId, u.username AS username, c.rating AS rating, c.createdAt AS createdAt, c.isDeleted AS isDeleted, c.isHidden AS isHidden, c.isDeletedByAdmin AS isDeletedByAdmin, u.isPrivate AS isUserPrivate, u.isDeleted AS isUserDeleted, u.isEnabled AS isUserEnabled, row_number() OVER (PARTITION BY c.parentComment.id ORDER BY c.rating DESC, c.id ASC) AS position FROM Comment c JOIN c.user u WHERE c.parentComment.id IN :parent_ids AND (u.id = :auth_user_id OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User b JOIN b.blockedUsers bu WHERE b=u AND bu.id=:auth_user_id) AND NOT EXISTS ( SELECT 1 FROM User b2 JOIN b2.blockedUsers bu2 WHERE b2.id=:auth_user_id AND bu2=u)))) r WHERE r.position <= :per_parent ORDER BY r.rating DESC, r.id ASC")
+    List<CommentRowDto> findReplies(@Param("parent_ids") Collection<Long> parentIds, @Param("auth_user_id") Long authUserId, @Param("per_parent") int perParent);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentRowDto(r.id, r.parentId, r.depth, r.content, r.userId, r.username, r.rating, r.createdAt, r.isDeleted, r.isHidden, r.isDeletedByAdmin, r.isUserPrivate, r.isUserDeleted, r.isUserEnabled) FROM (SELECT c.id AS id, c.parentComment.id AS parentId, c.depth AS depth, c.content AS content, u.id AS userId, u.username AS username, c.rating AS rating, c.createdAt AS createdAt, c.isDeleted AS isDeleted, c.isHidden AS isHidden, c.isDeletedByAdmin AS isDeletedByAdmin, u.isPrivate AS isUserPrivate, u.isDeleted AS isUserDeleted, u.isEnabled AS isUserEnabled, row_number() OVER (PARTITION BY c.parentComment.id ORDER BY c.rating DESC, c.id ASC) AS position FROM Comment c JOIN c.user u WHERE c.path LIKE :prefix% AND c.depth <= :max_depth AND (u.id = :auth_user_id OR (c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User b JOIN b.blockedUsers bu WHERE b=u AND bu.id=:auth_user_id) AND NOT EXISTS ( SELECT 1 FROM User b2 JOIN b2.blockedUsers bu2 WHERE b2.id=:auth_user_id AND bu2=u)))) r WHERE r.position <= :per_parent ORDER BY r.rating DESC, r.id ASC")
+    List<CommentRowDto> findSubtree(String prefix, @Param("auth_user_id") Long authUserId, @Param("max_depth") int maxDepth, @Param("per_parent") int perParent);
+
+    @Query("SELECT c.id FROM Comment c WHERE c.path IS NULL AND c.parentComment IS NULL")
+    List<Long> findUnpathedRoots(Limit limit);
+
+    @Query("SELECT new com.example.bloggingapp.dto.CommentPathDto(c.id, p.path, p.depth) FROM Comment c JOIN c.parentComment p WHERE c.path IS NULL AND p.path IS NOT NULL AND p.depth < " + CommentPath.MAX_DEPTH)
+    List<CommentPathDto> findUnpathedReplies(Limit limit);
+
+    @Query("SELECT COUNT(c) FROM Comment c WHERE c.path IS NULL")
+    long countUnpathed();
+
+    @Query("SELECT COUNT(*) FROM Comment c JOIN c.user u WHERE c.parentPost = :post AND u.id IN :user_ids AND c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true")
+    int countViewableByPostAndUsers(Post post, @Param("user_ids") Collection<Long> userIds);
+
+    @Query("SELECT COUNT(*) FROM Comment c JOIN c.user u WHERE c.parentPost = :post AND u = :user AND c.isDeleted = false AND c.isHidden = false AND (c.isDeletedByAdmin = true OR u.isPrivate = true OR u.isDeleted = true OR u.isEnabled = false)")
+    int countUncountedOwnByPost(Post post, User user);
+
+    @Query("SELECT COUNT(*) FROM Comment c JOIN c.user u WHERE c.path LIKE :prefix% AND c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true")
+    int countViewableInSubtree(String prefix);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO comment_reactions (comment_id, user_id, reaction) SELECT :comment_id, :user_id, :reaction FROM (SELECT 1) x WHERE NOT EXISTS (SELECT 1 FROM comment_reactions r WHERE r.comment_id = :comment_id AND r.user_id = :user_id)", nativeQuery = true)
+    int insertReaction(@Param("user_id") Long userId, @Param("comment_id") Long commentId, int reaction);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE comment_reactions SET reaction = :reaction WHERE comment_id = :comment_id AND user_id = :user_id AND reaction <> :reaction", nativeQuery = true)
+    int changeReaction(@Param("user_id") Long userId, @Param("comment_id") Long commentId, int reaction);
 
     @Transactional
     @Modifying
-    @Query(value = "INSERT INTO comment_likes (user_id, comment_id) VALUES (:user_id,:comment_id)", nativeQuery = true)
-    void insertLike(@Param("user_id") Long userId, @Param("comment_id") Long commentId);
+    @Query(value = "DELETE FROM comment_reactions WHERE comment_id = :comment_id AND user_id = :user_id AND reaction = :reaction", nativeQuery = true)
+    int removeReaction(@Param("user_id") Long userId, @Param("comment_id") Long commentId, int reaction);
 
     @Transactional
     @Modifying
-    @Query(value = "DELETE FROM comment_likes WHERE user_id = :user_id AND comment_id = :comment_id", nativeQuery = true)
-    void removeLike(@Param("user_id") Long userId, @Param("comment_id") Long commentId);
+    @Query(value = "UPDATE Comment c SET c.path = :path, c.depth = :depth WHERE c.id = :id")
+    void changePath(Long id, String path, int depth);
 
     @Transactional
     @Modifying
-    @Query(value = "INSERT INTO comment_dislikes (user_id, comment_id) VALUES (:user_id,:comment_id)", nativeQuery = true)
-    void insertDislike(@Param("user_id") Long userId, @Param("comment_id") Long commentId);
+    @Query(value = "DELETE FROM comment_reactions WHERE comment_id IN (SELECT c.id FROM comments c WHERE c.path LIKE CONCAT(:prefix, '%'))", nativeQuery = true)
+    void deleteSubtreeReactions(String prefix);
 
     @Transactional
     @Modifying
-    @Query(value = "DELETE FROM comment_dislikes WHERE user_id = :user_id AND comment_id = :comment_id", nativeQuery = true)
-    void removeDislike(@Param("user_id") Long userId, @Param("comment_id") Long commentId);
+    @Query(value = "UPDATE Comment c SET c.parentComment = null WHERE c.path LIKE :prefix%")
+    void detachSubtree(String prefix);
 
     @Transactional
     @Modifying
-    @Query(value = "UPDATE Comment c SET c.rating = c.rating + :change WHERE c = :comment")
-    void changeRating(Comment comment, @Param("change") int change);
+    @Query(value = "DELETE FROM Comment c WHERE c.path LIKE :prefix%")
+    void deleteSubtree(String prefix);
 
     @Transactional
     @Modifying
@@ -76,8 +134,13 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     @Transactional
     @Modifying
-    @Query(value = "UPDATE Comment c SET c.content=:new_content WHERE c= :comment")
-    void changeContent(Comment comment, @Param("new_content") String newContent);
+    @Query(value = "UPDATE Comment c SET c.content=:new_content, c.slug=:new_slug WHERE c= :comment")
+    void changeContent(Comment comment, @Param("new_content") String newContent, @Param("new_slug") String newSlug);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Comment c SET c.slug = :slug WHERE c.id = :id")
+    void changeSlug(Long id, String slug);
 
     @Transactional
     @Modifying
@@ -1,57 +1,129 @@
 package com.example.bloggingapp.repository;
 
+import com.example.bloggingapp.dto.PostHotScoreDto;
+import com.example.bloggingapp.dto.PostPreviewRowDto;
+import com.example.bloggingapp.dto.PostRankDto;
+import com.example.bloggingapp.dto.SlugSourceDto;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
-    @Query(value = "SELECT p FROM Post p WHERE p.user=:user")
-    Set<Post> findByUser(User user);
+    // the posts anyone can see, block relations are left to the callers
+    String VIEWABLE = "p.isDeleted = false AND p.isHidden = false AND p.isDeletedByAdmin = false AND p.user.isPrivate = false AND p.user.isEnabled = true AND p.user.isDeleted = false";
 
-    @Query(value = "SELECT p FROM Post p WHERE p.isDeleted = false AND p.isHidden = false AND p.isDeletedByAdmin=false AND p.user.isPrivate = false AND p.user.isEnabled = true ORDER BY p.rating DESC")
-    Set<Post> findN(Limit n);
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostPreviewRowDto(p.id, p.title, u.username, u.profilePictureName, p.rating, p.commentCount, p.hotScore, p.createdAt) FROM Post p JOIN p.user u WHERE u = :user AND (:is_owner = true OR (p.isDeleted = false AND p.isHidden = false AND p.isDeletedByAdmin = false)) AND (:after_id IS NULL OR p.createdAt < (SELECT a.createdAt FROM Post a WHERE a.id = :after_id) OR (p.createdAt = (SELECT a2.createdAt FROM Post a2 WHERE a2.id = :after_id) AND p.id < :after_id)) ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostPreviewRowDto> findPreviewsByUser(User user, @Param("is_owner") boolean isOwner, @Param("after_id") Long afterId, Limit limit);
 
-    @Query(value = "SELECT p FROM Post p WHERE p.isDeleted = false AND p.isHidden = false AND p.isDeletedByAdmin=false AND p.user.isPrivate = false AND p.user.isEnabled = true AND NOT EXISTS ( SELECT 1 FROM User u JOIN u.blockedUsers bu WHERE u=p.user AND bu=:auth_user) AND NOT EXISTS ( SELECT 1 FROM User u2 JOIN u2.blockedUsers bu2 WHERE u2=:auth_user AND bu2=p.user) ORDER BY p.rating DESC")
-    Set<Post> findNAuth(Limit n, @Param("auth_user") User authUser);
+    // PostRankingIndex can briefly hold a post hidden after its rating was read, so visibility is checked again here
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostPreviewRowDto(p.id, p.title, p.user.username, p.user.profilePictureName, p.rating, p.commentCount, p.hotScore, p.createdAt) FROM Post p WHERE p.id IN :ids AND " + VIEWABLE)
+    List<PostPreviewRowDto> findPreviewsByIds(Collection<Long> ids);
+
+    @Query(value = "SELECT p FROM Post p WHERE p.slug = :slug")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Optional<Post> findBySlug(String slug);
+
+    @Query(value = "SELECT p.id FROM Post p WHERE p.slug = :slug")
+    Optional<Long> findIdBySlug(String slug);
+
+    @Query(value = "SELECT p.title FROM Post p WHERE p.id = :id AND p.slug IS NULL")
+    Optional<String> findUnsluggedTitleById(Long id);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.SlugSourceDto(p.id, p.title) FROM Post p WHERE p.slug IS NULL")
+    List<SlugSourceDto> findUnslugged(Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostPreviewRowDto(p.id, p.title, p.user.username, p.user.profilePictureName, p.rating, p.commentCount, p.hotScore, p.createdAt) FROM Post p WHERE " + VIEWABLE + " AND p.user.id NOT IN :excluded_user_ids ORDER BY p.rating DESC, p.id ASC")
+    List<PostPreviewRowDto> findFeed(@Param("excluded_user_ids") Collection<Long> excludedUserIds, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostRankDto(p.id, p.rating, p.user.id) FROM Post p WHERE " + VIEWABLE + " ORDER BY p.rating DESC, p.id ASC")
+    List<PostRankDto> findRanking(Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostRankDto(p.id, p.rating, p.user.id) FROM Post p WHERE p.id IN :ids AND " + VIEWABLE)
+    List<PostRankDto> findRankingByIds(Collection<Long> ids);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostPreviewRowDto(p.id, p.title, p.user.username, p.user.profilePictureName, p.rating, p.commentCount, p.hotScore, p.createdAt) FROM Post p WHERE " + VIEWABLE + " AND p.user.id NOT IN :excluded_user_ids AND (p.rating < :after_rating OR (p.rating = :after_rating AND p.id > :after_id)) ORDER BY p.rating DESC, p.id ASC")
+    List<PostPreviewRowDto> findFeedAfter(@Param("excluded_user_ids") Collection<Long> excludedUserIds, @Param("after_rating") int afterRating, @Param("after_id") Long afterId, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostPreviewRowDto(p.id, p.title, p.user.username, p.user.profilePictureName, p.rating, p.commentCount, p.hotScore, p.createdAt) FROM Post p WHERE " + VIEWABLE + " AND p.user.id NOT IN :excluded_user_ids AND p.createdAt >= :since ORDER BY p.hotScore DESC, p.id ASC")
+    List<PostPreviewRowDto> findHotFeed(LocalDateTime since, @Param("excluded_user_ids") Collection<Long> excludedUserIds, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostPreviewRowDto(p.id, p.title, p.user.username, p.user.profilePictureName, p.rating, p.commentCount, p.hotScore, p.createdAt) FROM Post p WHERE " + VIEWABLE + " AND p.user.id NOT IN :excluded_user_ids AND p.createdAt >= :since AND (p.hotScore < :after_score OR (p.hotScore = :after_score AND p.id > :after_id)) ORDER BY p.hotScore DESC, p.id ASC")
+    List<PostPreviewRowDto> findHotFeedAfter(LocalDateTime since, @Param("excluded_user_ids") Collection<Long> excludedUserIds, @Param("after_score") double afterScore, @Param("after_id") Long afterId, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostHotScoreDto(p.id, p.rating, p.createdAt) FROM Post p WHERE p.id IN :ids")
+    List<PostHotScoreDto> findHotScoreInputs(Collection<Long> ids);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.PostHotScoreDto(p.id, p.rating, p.createdAt) FROM Post p WHERE p.hotScore = 0 AND p.createdAt IS NOT NULL")
+    List<PostHotScoreDto> findUnscored(Limit limit);
 
     @Transactional
     @Modifying
-    @Query(value = "INSERT INTO post_likes (user_id, post_id) VALUES (:user_id,:post_id)", nativeQuery = true)
-    void insertLike(@Param("user_id") Long userId, @Param("post_id") Long postId);
+    @Query(value = "INSERT INTO post_reactions (post_id, user_id, reaction) SELECT :post_id, :user_id, :reaction FROM (SELECT 1) x WHERE NOT EXISTS (SELECT 1 FROM post_reactions r WHERE r.post_id = :post_id AND r.user_id = :user_id)", nativeQuery = true)
+    int insertReaction(@Param("user_id") Long userId, @Param("post_id") Long postId, int reaction);
 
     @Transactional
     @Modifying
-    @Query(value = "DELETE FROM post_likes WHERE user_id = :user_id AND post_id = :post_id", nativeQuery = true)
-    void removeLike(@Param("user_id") Long userId, @Param("post_id") Long postId);
+    @Query(value = "UPDATE post_reactions SET reaction = :reaction WHERE post_id = :post_id AND user_id = :user_id AND reaction <> :reaction", nativeQuery = true)
+    int changeReaction(@Param("user_id") Long userId, @Param("post_id") Long postId, int reaction);
 
     @Transactional
     @Modifying
-    @Query(value = "INSERT INTO post_dislikes (user_id, post_id) VALUES (:user_id,:post_id)", nativeQuery = true)
-    void insertDislike(@Param("user_id") Long userId, @Param("post_id") Long postId);
+    @Query(value = "DELETE FROM post_reactions WHERE post_id = :post_id AND user_id = :user_id AND reaction = :reaction", nativeQuery = true)
+    int removeReaction(@Param("user_id") Long userId, @Param("post_id") Long postId, int reaction);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Post p SET p.commentCount = p.commentCount + :change WHERE p = :post")
+    void changeCommentCount(Post post, int change);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Post p SET p.commentCount = (SELECT COUNT(*) FROM Comment c JOIN c.user u WHERE c.parentPost = p AND c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true) WHERE p.id IN (SELECT c2.parentPost.id FROM Comment c2 WHERE c2.user = :user)")
+    void recountCommentsByCommenter(User user);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Post p SET p.commentCount = (SELECT COUNT(*) FROM Comment c JOIN c.user u WHERE c.parentPost = p AND c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true) WHERE p.id IN :post_ids")
+    void recountComments(@Param("post_ids") Collection<Long> postIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE Post p SET p.commentCount = (SELECT COUNT(*) FROM Comment c JOIN c.user u WHERE c.parentPost = p AND c.isDeleted = false AND c.isHidden = false AND c.isDeletedByAdmin = false AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true) WHERE p.commentCount IS NULL")
+    int recountUncounted();
+
+    @Query(value = "SELECT DISTINCT c.parentPost.id FROM Comment c WHERE c.user = :user")
+    Set<Long> findCommentedPostIds(User user);
 
     @Transactional
     @Modifying
-    @Query(value = "DELETE FROM post_dislikes WHERE user_id = :user_id AND post_id = :post_id", nativeQuery = true)
-    void removeDislike(@Param("user_id") Long userId, @Param("post_id") Long postId);
+    @Query(value = "UPDATE Post p SET p.hotScore = :hot_score WHERE p.id = :id")
+    void changeHotScore(Long id, @Param("hot_score") double hotScore);
 
     @Transactional
     @Modifying
-    @Query(value = "UPDATE Post p SET p.rating = p.rating + :change WHERE p = :post")
-    void changeRating(Post post, int change);
+    @Query(value = "UPDATE Post p SET p.title=:new_title, p.slug=:new_slug WHERE p=:post")
+    void changeTitle(Post post, @Param("new_title") String newTitle, @Param("new_slug") String newSlug);
 
     @Transactional
     @Modifying
-    @Query(value = "UPDATE Post p SET p.title=:new_title WHERE p=:post")
-    void changeTitle(Post post, @Param("new_title") String newTitle);
+    @Query(value = "UPDATE Post p SET p.slug = :slug WHERE p.id = :id")
+    void changeSlug(Long id, String slug);
 
     @Transactional
     @Modifying
@@ -1,7 +1,10 @@
 package com.example.bloggingapp.repository;
 
+import com.example.bloggingapp.dto.FollowCountDto;
+import com.example.bloggingapp.dto.UserFollowDto;
 import com.example.bloggingapp.model.User;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -24,6 +28,24 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    @Query(value = "SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(String username);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.UserFollowDto(f.username) FROM User u JOIN u.followers f WHERE u = :user AND f.isPrivate = false AND f.isDeleted = false AND f.isEnabled = true AND (:after_id IS NULL OR f.id > :after_id) ORDER BY f.id")
+    List<UserFollowDto> findFollowerNames(User user, @Param("after_id") Long afterId, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.UserFollowDto(f.username) FROM User u JOIN u.followers f WHERE u = :user AND (f = :auth_user OR (f.isPrivate = false AND f.isDeleted = false AND f.isEnabled = true AND NOT EXISTS (SELECT 1 FROM User b JOIN b.blockedUsers bb WHERE b = f AND bb = :auth_user) AND NOT EXISTS (SELECT 1 FROM User b2 JOIN b2.blockedUsers bb2 WHERE b2 = :auth_user AND bb2 = f))) AND (:after_id IS NULL OR f.id > :after_id) ORDER BY f.id")
+    List<UserFollowDto> findFollowerNamesAuth(User user, @Param("auth_user") User authUser, @Param("after_id") Long afterId, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.UserFollowDto(u.username) FROM User u JOIN u.followers f WHERE f = :user AND u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND (:after_id IS NULL OR u.id > :after_id) ORDER BY u.id")
+    List<UserFollowDto> findFollowingNames(User user, @Param("after_id") Long afterId, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.UserFollowDto(u.username) FROM User u JOIN u.followers f WHERE f = :user AND (u = :auth_user OR (u.isPrivate = false AND u.isDeleted = false AND u.isEnabled = true AND NOT EXISTS (SELECT 1 FROM User b JOIN b.blockedUsers bb WHERE b = u AND bb = :auth_user) AND NOT EXISTS (SELECT 1 FROM User b2 JOIN b2.blockedUsers bb2 WHERE b2 = :auth_user AND bb2 = u))) AND (:after_id IS NULL OR u.id > :after_id) ORDER BY u.id")
+    List<UserFollowDto> findFollowingNamesAuth(User user, @Param("auth_user") User authUser, @Param("after_id") Long afterId, Limit limit);
+
+    @Query(value = "SELECT new com.example.bloggingapp.dto.FollowCountDto(u.id, (SELECT COUNT(f) FROM User x JOIN x.followers f WHERE x = u AND f.isPrivate = false AND f.isDeleted = false AND f.isEnabled = true), (SELECT COUNT(x2) FROM User x2 JOIN x2.followers f2 WHERE f2 = u AND x2.isPrivate = false AND x2.isDeleted = false AND x2.isEnabled = true)) FROM User u WHERE u.followerCount IS NULL OR u.followingCount IS NULL")
+    List<FollowCountDto> findUncountedFollows(Limit limit);
+
     @Transactional
     @Modifying
     @Query(value = "UPDATE User u SET u.username=:new_username WHERE u=:user")
@@ -61,13 +83,39 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Transactional
     @Modifying
-    @Query(value = "INSERT INTO followers (user_id, parent_id) VALUES (:user_id, :parent_id)", nativeQuery = true)
-    void follow(@Param("user_id") Long userId, @Param("parent_id") Long parentId);
+    @Query(value = "INSERT INTO followers (user_id, parent_id) SELECT :user_id, :parent_id FROM (SELECT 1) x WHERE NOT EXISTS (SELECT 1 FROM followers f WHERE f.user_id = :user_id AND f.parent_id = :parent_id)", nativeQuery = true)
+    int follow(@Param("user_id") Long userId, @Param("parent_id") Long parentId);
 
     @Transactional
     @Modifying
     @Query(value = "DELETE FROM followers WHERE user_id = :user_id AND parent_id = :parent_id", nativeQuery = true)
-    void unfollow(@Param("user_id") Long userId, @Param("parent_id") Long parentId);
+    int unfollow(@Param("user_id") Long userId, @Param("parent_id") Long parentId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE User u SET u.followerCount = u.followerCount + :change WHERE u.id = :id")
+    void changeFollowerCount(Long id, int change);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE User u SET u.followingCount = u.followingCount + :change WHERE u.id = :id")
+    void changeFollowingCount(Long id, int change);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE User u SET u.followerCount = :follower_count, u.followingCount = :following_count WHERE u.id = :id")
+    void changeFollowCounts(Long id, @Param("follower_count") int followerCount, @Param("following_count") int followingCount);
+
+    // the subqueries only read followers, mysql rejects reading users while updating it
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE users SET follower_count = follower_count + :change WHERE id IN (SELECT f.user_id FROM followers f WHERE f.parent_id = :id)", nativeQuery = true)
+    void changeFollowedUsersFollowerCount(Long id, int change);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE users SET following_count = following_count + :change WHERE id IN (SELECT f.parent_id FROM followers f WHERE f.user_id = :id)", nativeQuery = true)
+    void changeFollowersFollowingCount(Long id, int change);
 
     @Transactional
     @Modifying
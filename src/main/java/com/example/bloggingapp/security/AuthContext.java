@@ -0,0 +1,60 @@
+package com.example.bloggingapp.security;
+
+import com.example.bloggingapp.exception.UserNotFoundException;
+import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Optional;
+
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class AuthContext {
+    private final AuthPrincipalCache authPrincipalCache;
+    private final UserRepository userRepository;
+    private AuthPrincipal principal;
+    private User user;
+
+    public void setPrincipal(AuthPrincipal principal) {
+        this.principal = principal;
+        this.user = null;
+    }
+
+    public boolean isAuthenticated() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken);
+    }
+
+    public String getUsername() {
+        if (!isAuthenticated()) {
+            return "";
+        }
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    public Optional<AuthPrincipal> getPrincipal() {
+        if (principal == null && isAuthenticated()) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication.getPrincipal() instanceof AuthPrincipal authPrincipal) {
+                principal = authPrincipal;
+            } else {
+                principal = authPrincipalCache.get(authentication.getName()).orElse(null);
+            }
+        }
+        return Optional.ofNullable(principal);
+    }
+
+    public User getUser() {
+        if (user == null) {
+            Long id = getPrincipal().map(AuthPrincipal::id).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+            user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        }
+        return user;
+    }
+}
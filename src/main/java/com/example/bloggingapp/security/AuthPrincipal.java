@@ -0,0 +1,29 @@
+package com.example.bloggingapp.security;
+
+import com.example.bloggingapp.enums.Role;
+import com.example.bloggingapp.model.User;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.List;
+
+public record AuthPrincipal(
+        Long id,
+        String username,
+        boolean isEnabled,
+        boolean isPrivate,
+        boolean isDeleted,
+        List<Role> roles
+) implements AuthenticatedPrincipal {
+    public AuthPrincipal {
+        roles = List.copyOf(roles);
+    }
+
+    public static AuthPrincipal of(User user) {
+        return new AuthPrincipal(user.getId(), user.getUsername(), user.getEnabled(), user.getPrivate(), user.getDeleted(), user.getRoles());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
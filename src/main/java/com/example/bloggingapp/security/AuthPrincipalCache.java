@@ -0,0 +1,36 @@
+package com.example.bloggingapp.security;
+
+import com.example.bloggingapp.repository.UserRepository;
+import com.example.bloggingapp.utils.TransactionUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+public class AuthPrincipalCache {
+    private final UserRepository userRepository;
+    private final Cache<String, AuthPrincipal> principals;
+
+    public AuthPrincipalCache(UserRepository userRepository,
+                              @Value("${security.principal-cache.size:10000}") long cacheSize,
+                              @Value("${security.principal-cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Optional<AuthPrincipal> get(String username) {
+        return Optional.ofNullable(principals.get(username, key -> userRepository.findByUsername(key).map(AuthPrincipal::of).orElse(null)));
+    }
+
+    // evicting before commit would let a concurrent request cache the old row again
+    public void evict(String username) {
+        TransactionUtils.afterCommit(() -> principals.invalidate(username));
+    }
+}
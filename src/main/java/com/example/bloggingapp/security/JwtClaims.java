@@ -0,0 +1,14 @@
+package com.example.bloggingapp.security;
+
+import java.time.Instant;
+import java.util.List;
+
+public record JwtClaims(
+        String username,
+        List<String> roles,
+        Instant expiration
+) {
+    public JwtClaims {
+        roles = List.copyOf(roles);
+    }
+}
@@ -1,8 +1,6 @@
 package com.example.bloggingapp.security;
 
 
-import com.example.bloggingapp.repository.UserRepository;
-import com.example.bloggingapp.service.impl.CustomUserDetailsService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,42 +10,42 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
-    private final CustomUserDetailsService customUserDetailsService;
-    private final UserRepository userRepository;
+    private final AuthPrincipalCache authPrincipalCache;
+    private final AuthContext authContext;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            if (jwtUtils.validate(token)) {
-                List<String> roles = jwtUtils.extractRoles(token);
-                List<SimpleGrantedAuthority> authorities = roles.stream().map(SimpleGrantedAuthority::new).toList();
-                String username = jwtUtils.extractUsername(token);
-                if (!userRepository.existsByUsername(username)) {
+            Optional<JwtClaims> claims = jwtUtils.parse(token);
+            if (claims.isPresent()) {
+                List<SimpleGrantedAuthority> authorities = claims.get().roles().stream().map(SimpleGrantedAuthority::new).toList();
+                Optional<AuthPrincipal> principal = authPrincipalCache.get(claims.get().username());
+                if (principal.isEmpty()) {
                     response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     response.getWriter().write("Please log in again!");
                     return;
                 }
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-                if (!userDetails.isEnabled()) {
+                if (!principal.get().isEnabled()) {
                     response.setStatus(HttpServletResponse.SC_FORBIDDEN);
                     response.getWriter().write("User is disabled!");
                     return;
                 }
-                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(principal.get(), null, authorities);
                 SecurityContextHolder.getContext().setAuthentication(auth);
+                authContext.setPrincipal(principal.get());
             }
         }
 
@@ -1,57 +1,103 @@
 package com.example.bloggingapp.security;
 
 import com.example.bloggingapp.enums.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtUtils {
     private final SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(SECRET_KEY).build();
+    // verified tokens are cached by digest until they expire
+    private final Cache<String, JwtClaims> verifiedTokens;
+
+    public JwtUtils(@Value("${security.jwt.cache-size:10000}") long cacheSize) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), claims.expiration()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
 
     public String generateToken(String username, List<Role> roles) {
+        return generateToken(username, roles, Duration.ofDays(1));
+    }
+
+    public String generateToken(String username, List<Role> roles, Duration validity) {
         return Jwts.builder()
                 .setSubject(username)
                 .claim("roles", roles.stream().map(Role::getRole).toList())
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24))
+                .setExpiration(new Date(System.currentTimeMillis() + validity.toMillis()))
                 .signWith(SECRET_KEY)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    public Optional<JwtClaims> parse(String token) {
+        String digest = digest(token);
+        JwtClaims claims = verifiedTokens.getIfPresent(digest);
+        if (claims != null) {
+            return Optional.of(claims);
+        }
+        try {
+            claims = toClaims(parser.parseClaimsJws(token).getBody());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        verifiedTokens.put(digest, claims);
+        return Optional.of(claims);
     }
 
     @SuppressWarnings("unchecked")
-    public List<String> extractRoles(String token) {
-        return (List<String>) Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("roles");
+    private JwtClaims toClaims(Claims body) {
+        List<String> roles = body.get("roles", List.class);
+        Date expiration = body.getExpiration();
+        if (body.getSubject() == null || expiration == null) {
+            throw new IllegalArgumentException("Incomplete token!");
+        }
+        return new JwtClaims(body.getSubject(), roles == null ? List.of() : roles, expiration.toInstant());
     }
 
-    public boolean validate(String token) {
+    private static String digest(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(SECRET_KEY)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
@@ -40,6 +40,7 @@ public class SecurityConfig {
                         .requestMatchers("/comment/**").permitAll()
                         .requestMatchers("/post/**").permitAll()
                         .requestMatchers("/user/**").permitAll()
+                        .requestMatchers("/image/**").permitAll()
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -1,31 +1,36 @@
 package com.example.bloggingapp.service;
 
+import com.example.bloggingapp.dto.CommentRowDto;
+import com.example.bloggingapp.dto.CommentThreadDto;
 import com.example.bloggingapp.dto.request.CreateCommentRequest;
 import com.example.bloggingapp.model.Comment;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.security.AuthContext;
 
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 public interface CommentService {
     Comment save(Comment comment);
 
-    Comment create(CreateCommentRequest request, String authUsername);
+    Comment create(CreateCommentRequest request, AuthContext authContext);
 
-    Set<Comment> findByUser(User user, String authUsername);
+    List<CommentRowDto> findByUser(User user, Long afterId, Integer size, AuthContext authContext);
 
-    Set<Comment> findByParentPost(String postURI, String authUsername);
+    CommentThreadDto findByParentPost(String postURI, Integer afterRating, Long afterId, Integer size, AuthContext authContext);
 
-    Set<Comment> findByParentComment(String commentURI, String authUsername);
+    CommentThreadDto findThread(Post post, Integer afterRating, Long afterId, Integer size, AuthContext authContext);
 
-    Comment getCommentForViewByURI(String commentURI, String authUsername);
+    CommentThreadDto findByParentComment(String commentURI, Integer afterRating, Long afterId, Integer size, AuthContext authContext);
 
-    boolean existsByURI(String commentURI);
+    Comment getByURI(String commentURI);
+
+    Comment getCommentForViewByURI(String commentURI, AuthContext authContext);
 
-    void filterCommentsAuth(Set<Comment> comments, User authUser);
+    CommentThreadDto findSubtree(Comment comment, AuthContext authContext);
 
-    void filterComments(Set<Comment> comments);
+    boolean existsByURI(String commentURI);
 
     Optional<Comment> findById(Long commentId);
 
@@ -33,27 +38,27 @@ public interface CommentService {
 
     Long getIdByURI(String url);
 
-    Integer getViewableCommentCountByPost(Post post, String authUsername);
+    Integer getViewableCommentCountByPost(Post post, AuthContext authContext);
 
-    void like(Long commentId, String authUsername);
+    void like(Long commentId, AuthContext authContext);
 
-    void removeLike(Long commentId, String authUsername);
+    void removeLike(Long commentId, AuthContext authContext);
 
-    void dislike(Long commentId, String authUsername);
+    void dislike(Long commentId, AuthContext authContext);
 
-    void removeDislike(Long commentId, String authUsername);
+    void removeDislike(Long commentId, AuthContext authContext);
 
-    void tempDelete(Long commentId, String authUsername);
+    void tempDelete(Long commentId, AuthContext authContext);
 
-    void undelete(Long commentId, String authUsername);
+    void undelete(Long commentId, AuthContext authContext);
 
-    void permanentlyDelete(Long commentId, String authUsername);
+    void permanentlyDelete(Long commentId, AuthContext authContext);
 
-    void hide(Long commentId, String authUsername);
+    void hide(Long commentId, AuthContext authContext);
 
-    void unhide(Long commentId, String authUsername);
+    void unhide(Long commentId, AuthContext authContext);
 
-    void changeContent(Long commentId, String authUsername, String newContent);
+    void changeContent(Long commentId, AuthContext authContext, String newContent);
 
     void tempDeleteByAdmin(Long commentId);
 
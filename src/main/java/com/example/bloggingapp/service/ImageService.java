@@ -1,5 +1,8 @@
 package com.example.bloggingapp.service;
 
+import com.example.bloggingapp.dto.ImageCacheStatsDto;
+import com.example.bloggingapp.enums.ImageSize;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 
@@ -7,4 +10,10 @@ public interface ImageService {
     String save(MultipartFile image);
 
     boolean isValid(MultipartFile image);
+
+    Resource load(String name, ImageSize size);
+
+    void delete(String name);
+
+    ImageCacheStatsDto cacheStats();
 }
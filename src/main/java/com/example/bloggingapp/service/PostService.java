@@ -1,58 +1,65 @@
 package com.example.bloggingapp.service;
 
-import com.example.bloggingapp.model.Comment;
+import com.example.bloggingapp.dto.PostPreviewRowDto;
+import com.example.bloggingapp.dto.RatingBacklogDto;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.security.AuthContext;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 public interface PostService {
-    Set<Post> findByUsername(String username, String authUsername);
+    List<PostPreviewRowDto> findByUsername(String username, Long afterId, Integer size, AuthContext authContext);
 
     Optional<Post> findById(Long id);
 
     Post save(Post post);
 
-    Set<Post> findN(Integer numberOfPosts, String authUsername);
+    List<PostPreviewRowDto> findFeed(Integer afterRating, Long afterId, Integer size, AuthContext authContext);
+
+    List<PostPreviewRowDto> findHotFeed(Double afterScore, Long afterId, Integer size, AuthContext authContext);
 
     String getURIByIdAndTitle(Long postId, String title);
 
     Long getIdByURI(String postURI);
 
-    Post getPostForViewByURI(String postURI, String authUsername);
+    Post getByURI(String postURI);
+
+    Post getPostForViewByURI(String postURI, AuthContext authContext);
 
     boolean existsByURI(String postURI);
 
-    void like(String authUsername, Long postId);
+    void like(AuthContext authContext, Long postId);
 
-    void removeLike(String authUsername, Long postId);
+    void removeLike(AuthContext authContext, Long postId);
 
-    void dislike(String authUsername, Long postId);
+    void dislike(AuthContext authContext, Long postId);
 
-    void removeDislike(String authUsername, Long postId);
+    void removeDislike(AuthContext authContext, Long postId);
 
-    void changeTitle(String authUsername, Long postId, String newTitle);
+    void changeTitle(AuthContext authContext, Long postId, String newTitle);
 
-    void changeContent(String authUsername, Long postId, String newContent);
+    void changeContent(AuthContext authContext, Long postId, String newContent);
 
-    void tempDelete(String authUsername, Long postId);
+    void tempDelete(AuthContext authContext, Long postId);
 
-    void undelete(String authUsername, Long postId);
+    void undelete(AuthContext authContext, Long postId);
 
-    void permanentlyDelete(String authUsername, Long postId);
+    void permanentlyDelete(AuthContext authContext, Long postId);
 
-    void hide(String authUsername, Long postId);
+    void hide(AuthContext authContext, Long postId);
 
-    void unhide(String authUsername, Long postId);
+    void unhide(AuthContext authContext, Long postId);
 
     void tempDeleteByAdmin(Long postId);
 
     void undeleteByAdmin(Long postId);
 
-    void filterComments(Set<Comment> comments);
+    void changeCommentCount(Post post, int change);
 
-    void filterCommentsAuth(Set<Comment> comments, User authUser);
+    RatingBacklogDto ratingBacklog();
 
     boolean isViewable(Post post);
 
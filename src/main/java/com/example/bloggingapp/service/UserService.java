@@ -1,10 +1,13 @@
 package com.example.bloggingapp.service;
 
+import com.example.bloggingapp.dto.UserFollowDto;
 import com.example.bloggingapp.dto.request.EmailChangeRequest;
 import com.example.bloggingapp.dto.request.PasswordChangeRequest;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.security.AuthContext;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -12,7 +15,7 @@ public interface UserService {
 
     Optional<User> findByUsername(String username);
 
-    User getUserForViewByUsername(String username, String authUsername);
+    User getUserForViewByUsername(String username, AuthContext authContext);
 
     User save(User user);
 
@@ -22,37 +25,39 @@ public interface UserService {
 
     boolean existsByEmailIgnoreCase(String email);
 
-    Set<User> findFollowers(String username, String authUsername);
+    List<UserFollowDto> findFollowers(String username, String afterUsername, Integer size, AuthContext authContext);
 
-    Set<User> findFollowing(String username, String authUsername);
+    List<UserFollowDto> findFollowing(String username, String afterUsername, Integer size, AuthContext authContext);
 
-    void follow(String username, String authUsername);
+    void follow(String username, AuthContext authContext);
 
-    void unfollow(String username, String authUsername);
+    void unfollow(String username, AuthContext authContext);
 
-    void block(String username, String authUsername);
+    void block(String username, AuthContext authContext);
 
-    void unblock(String username, String authUsername);
+    void unblock(String username, AuthContext authContext);
 
-    String changeUsername(String newUsername, String authUsername);
+    Set<Long> findBlockRelatedUserIds(User user);
 
-    void changeEmail(EmailChangeRequest request, String authUsername);
+    String changeUsername(String newUsername, AuthContext authContext);
 
-    void changePassword(PasswordChangeRequest request, String authUsername);
+    void changeEmail(EmailChangeRequest request, AuthContext authContext);
 
-    void changeDescription(String newDescription, String authUsername);
+    void changePassword(PasswordChangeRequest request, AuthContext authContext);
 
-    void changeProfilePicture(MultipartFile profilePicture, String authUsername);
+    void changeDescription(String newDescription, AuthContext authContext);
 
-    void goPrivate(String authUsername);
+    void changeProfilePicture(MultipartFile profilePicture, AuthContext authContext);
 
-    void goPublic(String authUsername);
+    void goPrivate(AuthContext authContext);
 
-    void tempDelete(String authUsername);
+    void goPublic(AuthContext authContext);
 
-    void undelete(String authUsername);
+    void tempDelete(AuthContext authContext);
 
-    void permanentlyDelete(String authUsername, String password);
+    void undelete(AuthContext authContext);
+
+    void permanentlyDelete(AuthContext authContext, String password);
 
     void disable(String username);
 
@@ -0,0 +1,145 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.utils.TransactionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the blocked_users graph as sorted id arrays in both directions, so block checks never load user entities
+@Component
+public class BlockIndex {
+    private static final long[] EMPTY = new long[0];
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, long[]> blocking = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> blockedBy = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public BlockIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isBlocking(Long blockerId, Long blockedId) {
+        if (!loaded) {
+            load();
+        }
+        return Arrays.binarySearch(blocking.getOrDefault(blockerId, EMPTY), blockedId) >= 0;
+    }
+
+    public boolean isBlockRelated(Long userId, Long otherUserId) {
+        return isBlocking(userId, otherUserId) || isBlocking(otherUserId, userId);
+    }
+
+    public Set<Long> findBlockRelatedUserIds(Long userId) {
+        if (!loaded) {
+            load();
+        }
+        long[] blocked = blocking.getOrDefault(userId, EMPTY);
+        long[] blockers = blockedBy.getOrDefault(userId, EMPTY);
+        Set<Long> userIds = new HashSet<>(blocked.length + blockers.length);
+        for (long id : blocked) {
+            userIds.add(id);
+        }
+        for (long id : blockers) {
+            userIds.add(id);
+        }
+        return userIds;
+    }
+
+    public void block(Long blockerId, Long blockedId) {
+        TransactionUtils.afterCommit(() -> update(blockerId, blockedId, true));
+    }
+
+    public void unblock(Long blockerId, Long blockedId) {
+        TransactionUtils.afterCommit(() -> update(blockerId, blockedId, false));
+    }
+
+    public void removeUser(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (this) {
+                if (!loaded) {
+                    return;
+                }
+                for (long blockedId : blocking.getOrDefault(userId, EMPTY)) {
+                    blockedBy.computeIfPresent(blockedId, (id, ids) -> without(ids, userId));
+                }
+                for (long blockerId : blockedBy.getOrDefault(userId, EMPTY)) {
+                    blocking.computeIfPresent(blockerId, (id, ids) -> without(ids, userId));
+                }
+                blocking.remove(userId);
+                blockedBy.remove(userId);
+            }
+        });
+    }
+
+    // changes committed before the load are read from the table, later ones wait for it to finish
+    private synchronized void update(Long blockerId, Long blockedId, boolean block) {
+        if (!loaded) {
+            return;
+        }
+        blocking.compute(blockerId, (id, ids) -> block ? with(ids, blockedId) : without(ids, blockedId));
+        blockedBy.compute(blockedId, (id, ids) -> block ? with(ids, blockerId) : without(ids, blockerId));
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        Map<Long, List<Long>> blockingLists = new HashMap<>();
+        Map<Long, List<Long>> blockedByLists = new HashMap<>();
+        jdbcTemplate.query("SELECT parent_id, user_id FROM blocked_users", row -> {
+            long blockerId = row.getLong(1);
+            long blockedId = row.getLong(2);
+            blockingLists.computeIfAbsent(blockerId, id -> new ArrayList<>()).add(blockedId);
+            blockedByLists.computeIfAbsent(blockedId, id -> new ArrayList<>()).add(blockerId);
+        });
+        blockingLists.forEach((id, ids) -> blocking.put(id, toSortedArray(ids)));
+        blockedByLists.forEach((id, ids) -> blockedBy.put(id, toSortedArray(ids)));
+        loaded = true;
+    }
+
+    private static long[] toSortedArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    private static long[] with(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        int insertion = -index - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertion);
+        result[insertion] = id;
+        System.arraycopy(ids, insertion, result, insertion + 1, ids.length - insertion);
+        return result;
+    }
+
+    // returns null for an empty result so compute drops the entry
+    private static long[] without(long[] ids, long id) {
+        if (ids == null) {
+            return null;
+        }
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// counts comments for posts created before comment_count existed
+@Component
+@RequiredArgsConstructor
+public class CommentCountBackfill implements ApplicationRunner {
+    private final PostRepository postRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        postRepository.recountUncounted();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.CommentPathDto;
+import com.example.bloggingapp.repository.CommentRepository;
+import com.example.bloggingapp.utils.CommentPath;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// fills in path and depth for comments created before those columns existed, one level at a time,
+// replies nested deeper than CommentPath.MAX_DEPTH don't fit the path column and are left without one
+@Slf4j
+@Component
+public class CommentPathBackfill implements ApplicationRunner {
+    private final CommentRepository commentRepository;
+    private final int batchSize;
+
+    public CommentPathBackfill(CommentRepository commentRepository,
+                               @Value("${comments.path-backfill-batch-size:1000}") int batchSize) {
+        this.commentRepository = commentRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (List<Long> roots = commentRepository.findUnpathedRoots(Limit.of(batchSize)); !roots.isEmpty(); roots = commentRepository.findUnpathedRoots(Limit.of(batchSize))) {
+            for (Long id : roots) {
+                commentRepository.changePath(id, CommentPath.of(null, id), 0);
+            }
+        }
+        for (List<CommentPathDto> replies = commentRepository.findUnpathedReplies(Limit.of(batchSize)); !replies.isEmpty(); replies = commentRepository.findUnpathedReplies(Limit.of(batchSize))) {
+            for (CommentPathDto reply : replies) {
+                commentRepository.changePath(reply.id(), CommentPath.of(reply.parentPath(), reply.id()), reply.parentDepth() + 1);
+            }
+        }
+        long unpathed = commentRepository.countUnpathed();
+        if (unpathed > 0) {
+            log.warn("{} comments are nested deeper than {} levels and were left without a path", unpathed, CommentPath.MAX_DEPTH);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bloggingapp.service.impl;
 
+import com.example.bloggingapp.dto.CommentRowDto;
+import com.example.bloggingapp.dto.CommentThreadDto;
 import com.example.bloggingapp.dto.request.CreateCommentRequest;
 import com.example.bloggingapp.exception.CommentNotFoundException;
 import com.example.bloggingapp.exception.PostNotFoundException;
@@ -8,15 +10,19 @@ import com.example.bloggingapp.model.Comment;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
 import com.example.bloggingapp.repository.CommentRepository;
+import com.example.bloggingapp.security.AuthContext;
 import com.example.bloggingapp.service.CommentService;
 import com.example.bloggingapp.service.PostService;
 import com.example.bloggingapp.service.UserService;
-import com.example.bloggingapp.utils.UriSanitizer;
-import jakarta.transaction.Transactional;
+import com.example.bloggingapp.utils.CommentPath;
+import com.example.bloggingapp.utils.Slug;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -26,16 +32,22 @@ public class CommentServiceImpl implements CommentService {
     private final CommentRepository commentRepository;
     private final UserService userService;
     private final PostService postService;
+    private final CommentThreadLoader commentThreadLoader;
+    private final RatingFlushScheduler ratingFlushScheduler;
 
     @Override
+    @Transactional
     public Comment save(Comment comment) {
-        return commentRepository.save(comment);
+        Comment saved = commentRepository.save(comment);
+        saved.setSlug(Slug.of(saved.getContent(), saved.getId()));
+        return saved;
     }
 
     @Override
-    public Comment create(CreateCommentRequest request, String authUsername) {
+    @Transactional
+    public Comment create(CreateCommentRequest request, AuthContext authContext) {
         Comment comment;
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (request.parentPostId() == null && request.parentCommentId() == null) {
             throw new IllegalArgumentException("Either parent post or parent comment must be provided!");
         }
@@ -53,37 +65,43 @@ public class CommentServiceImpl implements CommentService {
             if (!isViewableAuth(parentComment, authUser)) {
                 throw new CommentNotFoundException("Parent comment not found!");
             }
+            // the path column fits MAX_DEPTH levels, CommentPathBackfill stops at the same depth
+            if (parentComment.getDepth() >= CommentPath.MAX_DEPTH) {
+                throw new IllegalStateException("This thread is too deep!");
+            }
+            if (parentComment.getPath() == null) {
+                throw new IllegalStateException("This comment can't be replied to yet, try again later!");
+            }
             comment = new Comment(request.content(), authUser, parentComment.getParentPost(), parentComment);
+            comment.setDepth(parentComment.getDepth() + 1);
+        }
+        comment = save(comment);
+        comment.setPath(CommentPath.of(comment.getParentComment() == null ? null : comment.getParentComment().getPath(), comment.getId()));
+        if (isCounted(comment)) {
+            postService.changeCommentCount(comment.getParentPost(), 1);
         }
-        return save(comment);
+        return comment;
     }
 
     @Override
-    public Set<Comment> findByUser(User user, String authUsername) {
-        Set<Comment> comments = commentRepository.findByUser(user);
-        if (authUsername.isEmpty()) {
+    @Transactional(readOnly = true)
+    public List<CommentRowDto> findByUser(User user, Long afterId, Integer size, AuthContext authContext) {
+        if (!authContext.isAuthenticated()) {
             if (!userService.isViewable(user)) {
                 throw new UserNotFoundException("User not found!");
             }
-            filterComments(comments);
-            return comments;
+            return commentRepository.findRowsByUser(user, false, afterId, Limit.of(size));
         }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (!userService.isViewableAuth(user, authUser)) {
             throw new UserNotFoundException("User not found!");
         }
-        filterCommentsAuth(comments, authUser);
-        return comments;
+        return commentRepository.findRowsByUser(user, authUser.equals(user), afterId, Limit.of(size));
     }
 
     @Override
     public String getURIByIdAndContent(Long commentId, String content) {
-        if (content.length() > 30 && content.charAt(30) != ' ') {
-            content = content.substring(0, 31);
-        } else if (content.length() > 30) {
-            content = content.substring(0, 30);
-        }
-        return UriSanitizer.encode(content + "-" + commentId);
+        return Slug.of(content, commentId);
     }
 
     @Override
@@ -91,154 +109,187 @@ public class CommentServiceImpl implements CommentService {
         if (!existsByURI(commentURI)) {
             throw new CommentNotFoundException("Comment not found!");
         }
-        return Long.parseLong(commentURI.substring(commentURI.lastIndexOf('-') + 1));
+        return parseId(commentURI);
+    }
+
+    @Override
+    public Comment getByURI(String commentURI) {
+        Optional<Comment> comment = commentRepository.findBySlug(commentURI.toLowerCase());
+        if (comment.isPresent()) {
+            return comment.get();
+        }
+        return findById(parseId(commentURI))
+                .filter(unslugged -> unslugged.getSlug() == null && getURIByIdAndContent(unslugged.getId(), unslugged.getContent()).equalsIgnoreCase(commentURI))
+                .orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
     }
 
     @Override
-    public Set<Comment> findByParentPost(String postURI, String authUsername) {
-        Post post = postService.findById(postService.getIdByURI(postURI)).orElseThrow(() -> new PostNotFoundException("Post not found!"));
-        Set<Comment> comments = commentRepository.findByParentPost(post);
-        if (authUsername.isEmpty()) {
+    @Transactional(readOnly = true)
+    public CommentThreadDto findByParentPost(String postURI, Integer afterRating, Long afterId, Integer size, AuthContext authContext) {
+        Post post = postService.getByURI(postURI);
+        if (!authContext.isAuthenticated()) {
             if (!postService.isViewable(post)) {
                 throw new PostNotFoundException("Post not found!");
             }
-            filterComments(comments);
-            return comments;
+            return findThread(post, afterRating, afterId, size, authContext);
         }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
-        if (!postService.isViewableAuth(post, authUser)) {
+        if (!postService.isViewableAuth(post, authContext.getUser())) {
             throw new PostNotFoundException("Post not found!");
         }
-        filterCommentsAuth(comments, authUser);
-        return comments;
+        return findThread(post, afterRating, afterId, size, authContext);
     }
 
     @Override
-    public Set<Comment> findByParentComment(String commentURI, String authUsername) {
-        Comment parentComment = findById(getIdByURI(commentURI)).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
-        Set<Comment> comments = commentRepository.findByParentComment(parentComment);
-        if (authUsername.isEmpty()) {
+    @Transactional(readOnly = true)
+    public CommentThreadDto findThread(Post post, Integer afterRating, Long afterId, Integer size, AuthContext authContext) {
+        if ((afterRating == null) != (afterId == null)) {
+            throw new IllegalArgumentException("Both afterRating and afterId must be provided!");
+        }
+        Long authUserId = authContext.isAuthenticated() ? authContext.getUser().getId() : null;
+        return commentThreadLoader.load(post, authUserId, afterRating, afterId, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CommentThreadDto findByParentComment(String commentURI, Integer afterRating, Long afterId, Integer size, AuthContext authContext) {
+        if ((afterRating == null) != (afterId == null)) {
+            throw new IllegalArgumentException("Both afterRating and afterId must be provided!");
+        }
+        Comment parentComment = getByURI(commentURI);
+        if (!authContext.isAuthenticated()) {
             if (!isViewable(parentComment)) {
                 throw new CommentNotFoundException("Comment not found!");
             }
-            filterComments(comments);
-            return comments;
+            return commentThreadLoader.load(parentComment, null, afterRating, afterId, size);
         }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(parentComment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
         }
-        filterCommentsAuth(comments, authUser);
-        return comments;
+        return commentThreadLoader.load(parentComment, authUser.getId(), afterRating, afterId, size);
     }
 
     @Override
-    public Comment getCommentForViewByURI(String commentURI, String authUsername) {
-        Comment comment = findById(getIdByURI(commentURI)).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
-        if (authUsername.isEmpty()) {
+    @Transactional(readOnly = true)
+    public Comment getCommentForViewByURI(String commentURI, AuthContext authContext) {
+        Comment comment = getByURI(commentURI);
+        if (!authContext.isAuthenticated()) {
             if (!isViewable(comment)) {
                 throw new CommentNotFoundException("Comment not found!");
             }
             return comment;
         }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
         }
         return comment;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CommentThreadDto findSubtree(Comment comment, AuthContext authContext) {
+        Long authUserId = authContext.isAuthenticated() ? authContext.getUser().getId() : null;
+        CommentThreadDto subtree = commentThreadLoader.load(comment, authUserId);
+        if (subtree.comments().isEmpty()) {
+            throw new CommentNotFoundException("Comment not found!");
+        }
+        return subtree;
+    }
+
     public Optional<Comment> findById(Long commentId) {
         return commentRepository.findById(commentId);
     }
 
     @Override
-    public Integer getViewableCommentCountByPost(Post post, String authUsername) {
-        if (authUsername.isEmpty()) {
-            return commentRepository.getViewableCommentCountByPost(post);
-        }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
-        return commentRepository.getViewableCommentCountByPostAuth(post, authUser);
+    @Transactional(readOnly = true)
+    public Integer getViewableCommentCountByPost(Post post, AuthContext authContext) {
+        int count = post.getCommentCount() == null ? 0 : post.getCommentCount();
+        if (!authContext.isAuthenticated()) {
+            return count;
+        }
+        User authUser = authContext.getUser();
+        Set<Long> blockRelatedUserIds = userService.findBlockRelatedUserIds(authUser);
+        if (!blockRelatedUserIds.isEmpty()) {
+            count -= commentRepository.countViewableByPostAndUsers(post, blockRelatedUserIds);
+        }
+        return count + commentRepository.countUncountedOwnByPost(post, authUser);
     }
 
     @Override
     public boolean existsByURI(String commentURI) {
-        Long id = Long.parseLong(commentURI.substring(commentURI.lastIndexOf('-') + 1));
-        Comment comment = findById(id).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
-        return getURIByIdAndContent(comment.getId(), comment.getContent()).equalsIgnoreCase(commentURI);
+        if (commentRepository.findIdBySlug(commentURI.toLowerCase()).isPresent()) {
+            return true;
+        }
+        // comments the slug backfill hasn't reached yet are checked against their content
+        Long id = parseId(commentURI);
+        return commentRepository.findUnsluggedContentPrefixById(id)
+                .map(content -> getURIByIdAndContent(id, content).equalsIgnoreCase(commentURI))
+                .orElse(false);
     }
 
     @Override
     @Transactional
-    public void like(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void like(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
         }
-        if (comment.getLikedBy().contains(authUser)) {
+        int change = react(comment, authUser, 1);
+        if (change == 0) {
             throw new IllegalStateException("You already liked this comment!");
         }
-        if (comment.getDislikedBy().contains(authUser)) {
-            commentRepository.removeDislike(authUser.getId(), comment.getId());
-            commentRepository.changeRating(comment, 1);
-        }
-        commentRepository.insertLike(authUser.getId(), comment.getId());
-        commentRepository.changeRating(comment, 1);
+        ratingFlushScheduler.changeCommentRating(comment.getId(), change);
     }
 
     @Override
     @Transactional
-    public void removeLike(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void removeLike(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
         }
-        if (!comment.getLikedBy().contains(authUser)) {
+        if (commentRepository.removeReaction(authUser.getId(), comment.getId(), 1) == 0) {
             throw new IllegalStateException("You haven't liked this comment!");
         }
-        commentRepository.removeLike(authUser.getId(), comment.getId());
-        commentRepository.changeRating(comment, -1);
+        ratingFlushScheduler.changeCommentRating(comment.getId(), -1);
     }
 
     @Override
     @Transactional
-    public void dislike(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void dislike(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
         }
-        if (comment.getDislikedBy().contains(authUser)) {
+        int change = react(comment, authUser, -1);
+        if (change == 0) {
             throw new IllegalStateException("You already disliked this comment!");
         }
-        if (comment.getLikedBy().contains(authUser)) {
-            commentRepository.removeLike(authUser.getId(), comment.getId());
-            commentRepository.changeRating(comment, -1);
-        }
-        commentRepository.insertDislike(authUser.getId(), comment.getId());
-        commentRepository.changeRating(comment, -1);
+        ratingFlushScheduler.changeCommentRating(comment.getId(), change);
     }
 
     @Override
     @Transactional
-    public void removeDislike(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void removeDislike(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
         }
-        if (!comment.getDislikedBy().contains(authUser)) {
+        if (commentRepository.removeReaction(authUser.getId(), comment.getId(), -1) == 0) {
             throw new IllegalStateException("You haven't disliked this comment!");
         }
-        commentRepository.removeDislike(authUser.getId(), comment.getId());
-        commentRepository.changeRating(comment, 1);
+        ratingFlushScheduler.changeCommentRating(comment.getId(), 1);
     }
 
     @Override
-    public void tempDelete(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void tempDelete(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
@@ -249,12 +300,17 @@ public class CommentServiceImpl implements CommentService {
         if (comment.getDeleted()) {
             throw new IllegalStateException("This comment is already deleted!");
         }
+        boolean counted = isCounted(comment);
         commentRepository.tempDelete(comment);
+        if (counted) {
+            postService.changeCommentCount(comment.getParentPost(), -1);
+        }
     }
 
     @Override
-    public void undelete(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void undelete(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
@@ -263,11 +319,16 @@ public class CommentServiceImpl implements CommentService {
             throw new IllegalStateException("This comment isn't deleted!");
         }
         commentRepository.undelete(comment);
+        comment.setDeleted(false);
+        if (isCounted(comment)) {
+            postService.changeCommentCount(comment.getParentPost(), 1);
+        }
     }
 
     @Override
-    public void permanentlyDelete(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void permanentlyDelete(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
@@ -275,12 +336,20 @@ public class CommentServiceImpl implements CommentService {
         if (!comment.getUser().equals(authUser)) {
             throw new IllegalStateException("You can only delete your own comments!");
         }
-        commentRepository.delete(comment);
+        // the subtree is found by path, which CommentPathBackfill may not have reached yet
+        if (comment.getPath() == null) {
+            throw new IllegalStateException("This comment can't be deleted yet, try again later!");
+        }
+        postService.changeCommentCount(comment.getParentPost(), -commentRepository.countViewableInSubtree(comment.getPath()));
+        commentRepository.deleteSubtreeReactions(comment.getPath());
+        commentRepository.detachSubtree(comment.getPath());
+        commentRepository.deleteSubtree(comment.getPath());
     }
 
     @Override
-    public void hide(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void hide(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
@@ -291,12 +360,17 @@ public class CommentServiceImpl implements CommentService {
         if (comment.getHidden()) {
             throw new IllegalStateException("This comment is already hidden!");
         }
+        boolean counted = isCounted(comment);
         commentRepository.hide(comment);
+        if (counted) {
+            postService.changeCommentCount(comment.getParentPost(), -1);
+        }
     }
 
     @Override
-    public void unhide(Long commentId, String authUsername) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void unhide(Long commentId, AuthContext authContext) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
@@ -308,11 +382,15 @@ public class CommentServiceImpl implements CommentService {
             throw new IllegalStateException("This comment is not hidden!");
         }
         commentRepository.unhide(comment);
+        comment.setHidden(false);
+        if (isCounted(comment)) {
+            postService.changeCommentCount(comment.getParentPost(), 1);
+        }
     }
 
     @Override
-    public void changeContent(Long commentId, String authUsername, String newContent) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void changeContent(Long commentId, AuthContext authContext, String newContent) {
+        User authUser = authContext.getUser();
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!isViewableAuth(comment, authUser)) {
             throw new CommentNotFoundException("Comment not found!");
@@ -323,53 +401,58 @@ public class CommentServiceImpl implements CommentService {
         if (comment.getContent().equals(newContent)) {
             throw new IllegalArgumentException("New content must be different from the old one!");
         }
-        commentRepository.changeContent(comment, newContent);
+        commentRepository.changeContent(comment, newContent, Slug.of(newContent, comment.getId()));
     }
 
     @Override
+    @Transactional
     public void tempDeleteByAdmin(Long commentId) {
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (comment.getDeletedByAdmin()) {
             throw new IllegalStateException("This comment is already deleted by an admin!");
         }
+        boolean counted = isCounted(comment);
         commentRepository.tempDeleteByAdmin(comment);
+        if (counted) {
+            postService.changeCommentCount(comment.getParentPost(), -1);
+        }
     }
 
     @Override
+    @Transactional
     public void undeleteByAdmin(Long commentId) {
         Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new CommentNotFoundException("Comment not found!"));
         if (!comment.getDeletedByAdmin()) {
             throw new IllegalStateException("This comment is not deleted by an admin!");
         }
         commentRepository.undeleteByAdmin(comment);
+        comment.setDeletedByAdmin(false);
+        if (isCounted(comment)) {
+            postService.changeCommentCount(comment.getParentPost(), 1);
+        }
     }
 
-    @Override
-    public void filterComments(Set<Comment> comments) {
-        for (Iterator<Comment> i = comments.iterator(); i.hasNext(); ) {
-            Comment comment = i.next();
-            User user = comment.getUser();
-            if (comment.getDeleted() || comment.getHidden() || user.getPrivate() || comment.getDeletedByAdmin() || user.getDeleted() || !user.getEnabled()) {
-                i.remove();
-            } else {
-                filterComments(comment.getComments());
-            }
-        }
+    private static Long parseId(String commentURI) {
+        return Long.parseLong(commentURI.substring(commentURI.lastIndexOf('-') + 1));
     }
 
-    @Override
-    public void filterCommentsAuth(Set<Comment> comments, User authUser) {
-        for (Iterator<Comment> i = comments.iterator(); i.hasNext(); ) {
-            Comment comment = i.next();
-            User user = comment.getUser();
-            if (!user.equals(authUser) && (comment.getDeleted() || comment.getHidden() || user.getPrivate() || comment.getDeletedByAdmin() || user.getDeleted() || !user.getEnabled() || user.getBlockedUsers().contains(authUser) || authUser.getBlockedUsers().contains(user))) {
-                i.remove();
-            } else {
-                filterCommentsAuth(comment.getComments(), authUser);
+    // returns the rating change, 0 when the user already had this reaction
+    private int react(Comment comment, User authUser, int reaction) {
+        try {
+            if (commentRepository.insertReaction(authUser.getId(), comment.getId(), reaction) == 1) {
+                return reaction;
             }
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent reaction by the same user won the insert
+            return 0;
         }
+        return commentRepository.changeReaction(authUser.getId(), comment.getId(), reaction) * 2 * reaction;
     }
 
+    private boolean isCounted(Comment comment) {
+        User user = comment.getUser();
+        return !comment.getDeleted() && !comment.getHidden() && !comment.getDeletedByAdmin() && !user.getPrivate() && !user.getDeleted() && user.getEnabled();
+    }
 
     @Override
     public boolean isViewable(Comment comment) {
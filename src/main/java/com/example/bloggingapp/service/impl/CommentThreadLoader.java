@@ -0,0 +1,111 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.CommentRowDto;
+import com.example.bloggingapp.dto.CommentThreadDto;
+import com.example.bloggingapp.model.Comment;
+import com.example.bloggingapp.model.Post;
+import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.repository.CommentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class CommentThreadLoader {
+    private final CommentRepository commentRepository;
+    private final int maxDepth;
+    private final int repliesPerComment;
+
+    public CommentThreadLoader(CommentRepository commentRepository,
+                               @Value("${comments.max-depth:3}") int maxDepth,
+                               @Value("${comments.replies-per-comment:5}") int repliesPerComment) {
+        this.commentRepository = commentRepository;
+        this.maxDepth = maxDepth;
+        this.repliesPerComment = repliesPerComment;
+    }
+
+    public CommentThreadDto load(Post post, Long authUserId, Integer afterRating, Long afterId, int size) {
+        List<CommentRowDto> rows = afterId == null
+                ? commentRepository.findRootPage(post, authUserId, Limit.of(size))
+                : commentRepository.findRootPageAfter(post, authUserId, afterRating, afterId, Limit.of(size));
+        return withReplies(rows, authUserId);
+    }
+
+    public CommentThreadDto load(Comment comment, Long authUserId, Integer afterRating, Long afterId, int size) {
+        List<CommentRowDto> rows = afterId == null
+                ? commentRepository.findReplyPage(comment, authUserId, Limit.of(size))
+                : commentRepository.findReplyPageAfter(comment, authUserId, afterRating, afterId, Limit.of(size));
+        return withReplies(rows, authUserId);
+    }
+
+    // the whole subtree comes from one range scan on the path, replies below a hidden comment are dropped,
+    // comments without a path are loaded one level at a time instead
+    public CommentThreadDto load(Comment root, Long authUserId) {
+        if (root.getPath() == null) {
+            return withReplies(List.of(toRow(root)), authUserId);
+        }
+        int leafDepth = root.getDepth() + maxDepth;
+        List<CommentRowDto> rows = new ArrayList<>(commentRepository.findSubtree(root.getPath(), authUserId, leafDepth, repliesPerComment + 1));
+        rows.sort(Comparator.comparing(CommentRowDto::depth));
+        List<CommentRowDto> comments = new ArrayList<>();
+        Set<Long> truncatedIds = new HashSet<>();
+        Set<Long> keptIds = new HashSet<>();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (CommentRowDto row : rows) {
+            if (row.id().equals(root.getId())) {
+                comments.add(row);
+                keptIds.add(row.id());
+                continue;
+            }
+            if (!keptIds.contains(row.parentId())) {
+                continue;
+            }
+            int count = counts.merge(row.parentId(), 1, Integer::sum);
+            if (row.depth() == leafDepth || count > repliesPerComment) {
+                truncatedIds.add(row.parentId());
+            } else {
+                comments.add(row);
+                keptIds.add(row.id());
+            }
+        }
+        return new CommentThreadDto(comments, truncatedIds);
+    }
+
+    private CommentRowDto toRow(Comment comment) {
+        User user = comment.getUser();
+        Long parentId = comment.getParentComment() == null ? null : comment.getParentComment().getId();
+        return new CommentRowDto(comment.getId(), parentId, comment.getDepth(), comment.getContent(), user.getId(), user.getUsername(), comment.getRating(), comment.getCreatedAt(), comment.getDeleted(), comment.getHidden(), comment.getDeletedByAdmin(), user.getPrivate(), user.getDeleted(), user.getEnabled());
+    }
+
+    // one query per level, the last level only tells which comments have more replies
+    private CommentThreadDto withReplies(List<CommentRowDto> page, Long authUserId) {
+        List<CommentRowDto> comments = new ArrayList<>(page);
+        Set<Long> truncatedIds = new HashSet<>();
+        List<Long> parentIds = page.stream().map(CommentRowDto::id).toList();
+        for (int depth = 1; depth <= maxDepth && !parentIds.isEmpty(); depth++) {
+            boolean last = depth == maxDepth;
+            List<CommentRowDto> replies = commentRepository.findReplies(parentIds, authUserId, last ? 1 : repliesPerComment + 1);
+            Map<Long, Integer> counts = new HashMap<>();
+            List<Long> nextParentIds = new ArrayList<>();
+            for (CommentRowDto reply : replies) {
+                int count = counts.merge(reply.parentId(), 1, Integer::sum);
+                if (last || count > repliesPerComment) {
+                    truncatedIds.add(reply.parentId());
+                } else {
+                    comments.add(reply);
+                    nextParentIds.add(reply.id());
+                }
+            }
+            parentIds = nextParentIds;
+        }
+        return new CommentThreadDto(comments, truncatedIds);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.FollowCountDto;
+import com.example.bloggingapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// counts viewable follows for users created before follower_count and following_count existed
+@Component
+public class FollowCountBackfill implements ApplicationRunner {
+    private final UserRepository userRepository;
+    private final int batchSize;
+
+    public FollowCountBackfill(UserRepository userRepository,
+                               @Value("${follows.backfill-batch-size:1000}") int batchSize) {
+        this.userRepository = userRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (List<FollowCountDto> users = userRepository.findUncountedFollows(Limit.of(batchSize)); !users.isEmpty(); users = userRepository.findUncountedFollows(Limit.of(batchSize))) {
+            for (FollowCountDto user : users) {
+                userRepository.changeFollowCounts(user.id(), Math.toIntExact(user.followerCount()), Math.toIntExact(user.followingCount()));
+            }
+        }
+    }
+}
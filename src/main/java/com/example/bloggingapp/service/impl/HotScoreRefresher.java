@@ -0,0 +1,65 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.PostHotScoreDto;
+import com.example.bloggingapp.repository.PostRepository;
+import com.example.bloggingapp.utils.HotScore;
+import com.example.bloggingapp.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class HotScoreRefresher {
+    private final PostRepository postRepository;
+    private final int batchSize;
+    private final Duration window;
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public HotScoreRefresher(PostRepository postRepository,
+                             @Value("${feed.hot.refresh-batch-size:1000}") int batchSize,
+                             @Value("${feed.hot.window:7d}") Duration window) {
+        this.postRepository = postRepository;
+        this.batchSize = batchSize;
+        this.window = window;
+    }
+
+    public LocalDateTime windowStart() {
+        return LocalDateTime.now().minus(window);
+    }
+
+    public void markDirty(Long postId) {
+        TransactionUtils.afterCommit(() -> dirty.add(postId));
+    }
+
+    @Scheduled(fixedDelayString = "${feed.hot.refresh-interval:30000}")
+    @Transactional
+    public void refresh() {
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> i = dirty.iterator(); i.hasNext() && ids.size() < batchSize; ) {
+            ids.add(i.next());
+            i.remove();
+        }
+        try {
+            List<PostHotScoreDto> posts = new ArrayList<>(postRepository.findUnscored(Limit.of(batchSize)));
+            if (!ids.isEmpty()) {
+                posts.addAll(postRepository.findHotScoreInputs(ids));
+            }
+            for (PostHotScoreDto post : posts) {
+                postRepository.changeHotScore(post.id(), HotScore.compute(post.rating(), post.createdAt()));
+            }
+        } catch (RuntimeException e) {
+            dirty.addAll(ids);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.ImageCacheStatsDto;
+import com.example.bloggingapp.utils.ByteBufferResource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@Component
+public class ImageCache {
+    private final Cache<String, ByteBuffer> images;
+    private final long maxSize;
+    private final long maxEntrySize;
+
+    public ImageCache(@Value("${storage.image-cache.max-size:64MB}") DataSize maxSize,
+                      @Value("${storage.image-cache.max-entry-size:1MB}") DataSize maxEntrySize) {
+        this.maxSize = maxSize.toBytes();
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(this.maxSize)
+                .weigher((String name, ByteBuffer bytes) -> bytes.capacity())
+                .recordStats()
+                .build();
+    }
+
+    public Resource getIfPresent(String name) {
+        ByteBuffer bytes = images.getIfPresent(name);
+        return bytes == null ? null : new ByteBufferResource(bytes, name);
+    }
+
+    public Resource get(Path path, long size) throws IOException {
+        if (size > maxEntrySize) {
+            return null;
+        }
+        String name = path.getFileName().toString();
+        try {
+            return new ByteBufferResource(images.get(name, key -> read(path)), name);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void invalidate(String name) {
+        images.invalidate(name);
+    }
+
+    public ImageCacheStatsDto stats() {
+        CacheStats stats = images.stats();
+        long weightedSize = images.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+        return new ImageCacheStatsDto(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(), images.estimatedSize(), weightedSize, maxSize);
+    }
+
+    private static ByteBuffer read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocateDirect((int) channel.size());
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) == -1) {
+                    break;
+                }
+            }
+            return bytes.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,50 +1,242 @@
 package com.example.bloggingapp.service.impl;
 
 import com.example.bloggingapp.config.FileStorageConfig;
+import com.example.bloggingapp.dto.ImageCacheStatsDto;
+import com.example.bloggingapp.enums.ImageSize;
+import com.example.bloggingapp.exception.ImageNotFoundException;
 import com.example.bloggingapp.exception.InvalidImageException;
 import com.example.bloggingapp.service.ImageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
+@RequiredArgsConstructor
 public class ImageServiceImpl implements ImageService {
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    // names handed out by save, variants are served through ImageSize and staged uploads live in UPLOAD_DIR
+    private static final Pattern IMAGE_NAME = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.(?i:jpe?g|png)");
+    private static final String UPLOAD_DIR = "tmp";
+    private final ImageCache imageCache;
 
     @Override
     public String save(MultipartFile image) {
-        String extension = StringUtils.getFilenameExtension(image.getOriginalFilename());
-        UUID uuid = UUID.randomUUID();
-        Path path = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, uuid + "." + extension);
-        byte[] bytes;
+        Path dir = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR);
+        Path temp;
         try {
-            bytes = image.getBytes();
-        } catch (IOException ex) {
-            throw new InvalidImageException("Invalid image!");
-        }
-        for (int i = 0; Files.exists(path); i++) {
-            uuid = UUID.randomUUID();
-            path = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, uuid + "." + extension);
-            if (i == 1000) {
-                throw new RuntimeException("Error processing image!");
-            }
+            temp = Files.createTempFile(Files.createDirectories(dir.resolve(UPLOAD_DIR)), "upload-", ".tmp");
+        } catch (IOException e) {
+            throw new RuntimeException("Error processing image!");
         }
+        String name = null;
+        boolean saved = false;
         try {
-            Files.write(path, bytes);
+            String extension = copy(image, temp);
+            name = reserveName(dir, extension);
+            Files.move(temp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            saveVariants(dir.resolve(name), name);
+            saved = true;
+            return name;
         } catch (IOException e) {
             throw new RuntimeException("Error processing image!");
+        } finally {
+            if (!saved && name != null) {
+                delete(name);
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
         }
-        return uuid + "." + extension;
     }
 
     @Override
     public boolean isValid(MultipartFile image) {
         String extension = StringUtils.getFilenameExtension(image.getOriginalFilename());
-        return extension != null && (extension.equalsIgnoreCase("jpg") || extension.equalsIgnoreCase("jpeg") || extension.equalsIgnoreCase("png"));
+        if (extension == null || !(extension.equalsIgnoreCase("jpg") || extension.equalsIgnoreCase("jpeg") || extension.equalsIgnoreCase("png"))) {
+            return false;
+        }
+        byte[] header = new byte[PNG_MAGIC.length];
+        try (InputStream in = image.getInputStream()) {
+            return sniff(header, in.readNBytes(header, 0, header.length)) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Resource load(String name, ImageSize size) {
+        if (!IMAGE_NAME.matcher(name).matches()) {
+            throw new ImageNotFoundException("Image not found!");
+        }
+        Path dir = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR).toAbsolutePath().normalize();
+        Path path = dir.resolve(name);
+        Resource cached = imageCache.getIfPresent(size == null ? name : size.variantOf(name));
+        if (cached != null) {
+            return cached;
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new ImageNotFoundException("Image not found!");
+        }
+        if (size != null && Files.isRegularFile(dir.resolve(size.variantOf(name)))) {
+            path = dir.resolve(size.variantOf(name));
+        }
+        try {
+            Resource image = imageCache.get(path, Files.size(path));
+            return image != null ? image : new FileSystemResource(path);
+        } catch (IOException e) {
+            throw new ImageNotFoundException("Image not found!");
+        }
+    }
+
+    @Override
+    public void delete(String name) {
+        Path dir = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR);
+        imageCache.invalidate(name);
+        try {
+            Files.deleteIfExists(dir.resolve(name));
+            for (ImageSize size : ImageSize.values()) {
+                imageCache.invalidate(size.variantOf(name));
+                Files.deleteIfExists(dir.resolve(size.variantOf(name)));
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public ImageCacheStatsDto cacheStats() {
+        return imageCache.stats();
+    }
+
+    private String copy(MultipartFile image, Path target) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = image.getInputStream(); OutputStream out = Files.newOutputStream(target)) {
+            int headerLength = in.readNBytes(buffer, 0, PNG_MAGIC.length);
+            String extension = sniff(buffer, headerLength);
+            if (extension == null) {
+                throw new InvalidImageException("Invalid image!");
+            }
+            out.write(buffer, 0, headerLength);
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return extension;
+        }
+    }
+
+    private String reserveName(Path dir, String extension) throws IOException {
+        for (int i = 0; ; i++) {
+            String name = UUID.randomUUID() + "." + extension;
+            try {
+                Files.createFile(dir.resolve(name));
+                return name;
+            } catch (FileAlreadyExistsException e) {
+                if (i == 10) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String sniff(byte[] header, int length) {
+        if (length >= JPEG_MAGIC.length && Arrays.equals(header, 0, JPEG_MAGIC.length, JPEG_MAGIC, 0, JPEG_MAGIC.length)) {
+            return "jpg";
+        }
+        if (length >= PNG_MAGIC.length && Arrays.equals(header, 0, PNG_MAGIC.length, PNG_MAGIC, 0, PNG_MAGIC.length)) {
+            return "png";
+        }
+        return null;
+    }
+
+    private void saveVariants(Path original, String name) {
+        BufferedImage source;
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            source = decode(in);
+        } catch (IOException e) {
+            source = null;
+        }
+        if (source == null) {
+            throw new InvalidImageException("Invalid image!");
+        }
+        boolean png = name.endsWith(".png");
+        for (ImageSize size : ImageSize.values()) {
+            BufferedImage variant = resize(source, size.getPixels(), png);
+            Path path = original.resolveSibling(size.variantOf(name));
+            try {
+                ImageIO.write(variant, png ? "png" : "jpg", path.toFile());
+            } catch (IOException e) {
+                throw new RuntimeException("Error processing image!");
+            }
+        }
+    }
+
+    private BufferedImage decode(ImageInputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, true, true);
+            int maxSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+            int subsampling = Math.max(1, maxSide / (ImageSize.LARGE.getPixels() * 2));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int maxSide, boolean alpha) {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
     }
 }
@@ -0,0 +1,173 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.PostRankDto;
+import com.example.bloggingapp.repository.PostRepository;
+import com.example.bloggingapp.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// holds every viewable post ranked at or above the boundary, anything past it comes from the database
+@Component
+public class PostRankingIndex {
+    private static final Comparator<PostRankDto> FEED_ORDER = Comparator.comparingInt(PostRankDto::rating).reversed().thenComparing(PostRankDto::id);
+    private final PostRepository postRepository;
+    private final int capacity;
+    private final Object lock = new Object();
+    private volatile NavigableSet<PostRankDto> ranking = new ConcurrentSkipListSet<>(FEED_ORDER);
+    private volatile Map<Long, PostRankDto> byId = new ConcurrentHashMap<>();
+    private volatile PostRankDto boundary;
+    private volatile boolean stale = true;
+    // false until a rebuild is published and again after an invalidate, the database serves the feed meanwhile
+    private volatile boolean loaded;
+    private List<Runnable> replay;
+
+    public PostRankingIndex(PostRepository postRepository, @Value("${feed.ranking.size:500}") int capacity) {
+        this.postRepository = postRepository;
+        this.capacity = capacity;
+    }
+
+    public record Page(List<Long> postIds, PostRankDto continueAfter, boolean complete) {
+    }
+
+    public Page page(PostRankDto after, int size, Set<Long> excludedUserIds) {
+        if (stale) {
+            rebuild();
+        }
+        NavigableSet<PostRankDto> current;
+        PostRankDto currentBoundary;
+        synchronized (lock) {
+            if (!loaded) {
+                return new Page(List.of(), after, false);
+            }
+            current = ranking;
+            currentBoundary = boundary;
+        }
+        if (after != null && currentBoundary != null && FEED_ORDER.compare(after, currentBoundary) >= 0) {
+            return new Page(List.of(), after, false);
+        }
+        List<Long> postIds = new ArrayList<>(size);
+        for (PostRankDto post : after == null ? current : current.tailSet(after, false)) {
+            if (!excludedUserIds.contains(post.userId())) {
+                postIds.add(post.id());
+                if (postIds.size() == size) {
+                    return new Page(postIds, null, true);
+                }
+            }
+        }
+        return new Page(postIds, currentBoundary, currentBoundary == null);
+    }
+
+    public void put(Long postId, int rating, Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (lock) {
+                apply(() -> replace(postId, new PostRankDto(postId, rating, userId)));
+            }
+        });
+    }
+
+    public void remove(Long postId) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (lock) {
+                apply(() -> replace(postId, null));
+            }
+        });
+    }
+
+    public void removeUser(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (lock) {
+                apply(() -> {
+                    for (PostRankDto post : byId.values()) {
+                        if (post.userId().equals(userId)) {
+                            byId.remove(post.id());
+                            ranking.remove(post);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public void invalidate() {
+        TransactionUtils.afterCommit(() -> {
+            synchronized (lock) {
+                stale = true;
+                loaded = false;
+                if (replay != null) {
+                    replay.add(() -> {
+                        stale = true;
+                        loaded = false;
+                    });
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${feed.ranking.reconcile-interval:60000}", initialDelayString = "${feed.ranking.reconcile-interval:60000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    private void apply(Runnable change) {
+        change.run();
+        if (replay != null) {
+            replay.add(change);
+        }
+    }
+
+    private void replace(Long postId, PostRankDto post) {
+        PostRankDto old = byId.remove(postId);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        if (post != null && (boundary == null || FEED_ORDER.compare(post, boundary) <= 0)) {
+            ranking.add(post);
+            byId.put(postId, post);
+        }
+    }
+
+    private void rebuild() {
+        synchronized (lock) {
+            if (replay != null) {
+                return;
+            }
+            replay = new ArrayList<>();
+            stale = false;
+        }
+        List<PostRankDto> top;
+        try {
+            top = postRepository.findRanking(Limit.of(capacity));
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                replay = null;
+                stale = true;
+            }
+            throw e;
+        }
+        NavigableSet<PostRankDto> newRanking = new ConcurrentSkipListSet<>(FEED_ORDER);
+        Map<Long, PostRankDto> newById = new ConcurrentHashMap<>();
+        for (PostRankDto post : top) {
+            newRanking.add(post);
+            newById.put(post.id(), post);
+        }
+        synchronized (lock) {
+            ranking = newRanking;
+            byId = newById;
+            boundary = top.size() < capacity ? null : top.get(top.size() - 1);
+            loaded = true;
+            replay.forEach(Runnable::run);
+            replay = null;
+        }
+    }
+}
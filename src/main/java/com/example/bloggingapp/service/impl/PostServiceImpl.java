@@ -1,20 +1,28 @@
 package com.example.bloggingapp.service.impl;
 
+import com.example.bloggingapp.dto.PostPreviewRowDto;
+import com.example.bloggingapp.dto.PostRankDto;
+import com.example.bloggingapp.dto.RatingBacklogDto;
 import com.example.bloggingapp.exception.PostNotFoundException;
 import com.example.bloggingapp.exception.UserNotFoundException;
-import com.example.bloggingapp.model.Comment;
 import com.example.bloggingapp.model.Post;
 import com.example.bloggingapp.model.User;
 import com.example.bloggingapp.repository.PostRepository;
+import com.example.bloggingapp.security.AuthContext;
 import com.example.bloggingapp.service.PostService;
 import com.example.bloggingapp.service.UserService;
-import com.example.bloggingapp.utils.UriSanitizer;
-import jakarta.transaction.Transactional;
+import com.example.bloggingapp.utils.Slug;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Iterator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -23,6 +31,9 @@ import java.util.Set;
 public class PostServiceImpl implements PostService {
     private final PostRepository postRepository;
     private final UserService userService;
+    private final PostRankingIndex postRankingIndex;
+    private final HotScoreRefresher hotScoreRefresher;
+    private final RatingFlushScheduler ratingFlushScheduler;
 
     @Override
     public Optional<Post> findById(Long id) {
@@ -30,49 +41,79 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
-    public Set<Post> findByUsername(String username, String authUsername) {
+    @Transactional(readOnly = true)
+    public List<PostPreviewRowDto> findByUsername(String username, Long afterId, Integer size, AuthContext authContext) {
         User user = userService.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        Set<Post> posts = postRepository.findByUser(user);
-        if (authUsername.isEmpty()) {
+        if (!authContext.isAuthenticated()) {
             if (!userService.isViewable(user)) {
                 throw new UserNotFoundException("User not found!");
             }
-            posts.removeIf(post -> !isViewable(post));
-            return posts;
+            return postRepository.findPreviewsByUser(user, false, afterId, Limit.of(size));
         }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        User authUser = authContext.getUser();
         if (!userService.isViewableAuth(user, authUser)) {
             throw new UserNotFoundException("User not found!");
         }
-        posts.removeIf(post -> !isViewableAuth(post, authUser));
-        return posts;
+        // the author is checked above, so the query only filters on the posts' own flags
+        return postRepository.findPreviewsByUser(user, authUser.equals(user), afterId, Limit.of(size));
     }
 
     @Override
+    @Transactional
     public Post save(Post post) {
-        return postRepository.save(post);
+        Post saved = postRepository.save(post);
+        saved.setSlug(Slug.of(saved.getTitle(), saved.getId()));
+        if (isViewable(saved)) {
+            postRankingIndex.put(saved.getId(), saved.getRating(), saved.getUser().getId());
+        }
+        return saved;
     }
 
     @Override
-    public Set<Post> findN(Integer numberOfPosts, String authUsername) {
-        Set<Post> posts;
-        if (authUsername.isEmpty()) {
-            posts = postRepository.findN(Limit.of(numberOfPosts));
-            return posts;
-        }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
-        posts = postRepository.findNAuth(Limit.of(numberOfPosts), authUser);
-        return posts;
+    @Transactional(readOnly = true)
+    public List<PostPreviewRowDto> findFeed(Integer afterRating, Long afterId, Integer size, AuthContext authContext) {
+        if ((afterRating == null) != (afterId == null)) {
+            throw new IllegalArgumentException("Both afterRating and afterId must be provided!");
+        }
+        User authUser = authContext.isAuthenticated() ? authContext.getUser() : null;
+        PostRankDto after = afterId == null ? null : new PostRankDto(afterId, afterRating, null);
+        Set<Long> excludedUserIds = authUser == null ? Set.of() : userService.findBlockRelatedUserIds(authUser);
+        PostRankingIndex.Page page = postRankingIndex.page(after, size, excludedUserIds);
+        Map<Long, PostPreviewRowDto> posts = new HashMap<>();
+        postRepository.findPreviewsByIds(page.postIds()).forEach(post -> posts.put(post.id(), post));
+        List<PostPreviewRowDto> feed = new ArrayList<>(size);
+        for (Long postId : page.postIds()) {
+            PostPreviewRowDto post = posts.get(postId);
+            if (post != null) {
+                feed.add(post);
+            }
+        }
+        if (page.complete() || feed.size() == size) {
+            return feed;
+        }
+        PostRankDto continueAfter = page.continueAfter();
+        Limit limit = Limit.of(size - feed.size());
+        feed.addAll(continueAfter == null ? postRepository.findFeed(excludedUserIds, limit) : postRepository.findFeedAfter(excludedUserIds, continueAfter.rating(), continueAfter.id(), limit));
+        return feed;
     }
 
     @Override
-    public String getURIByIdAndTitle(Long postId, String title) {
-        if (title.length() > 30 && title.charAt(30) != ' ') {
-            title = title.substring(0, 31);
-        } else if (title.length() > 30) {
-            title = title.substring(0, 30);
+    @Transactional(readOnly = true)
+    public List<PostPreviewRowDto> findHotFeed(Double afterScore, Long afterId, Integer size, AuthContext authContext) {
+        if ((afterScore == null) != (afterId == null)) {
+            throw new IllegalArgumentException("Both afterScore and afterId must be provided!");
         }
-        return UriSanitizer.encode(title + "-" + postId);
+        LocalDateTime since = hotScoreRefresher.windowStart();
+        Set<Long> excludedUserIds = authContext.isAuthenticated() ? userService.findBlockRelatedUserIds(authContext.getUser()) : Set.of();
+        if (afterId == null) {
+            return postRepository.findHotFeed(since, excludedUserIds, Limit.of(size));
+        }
+        return postRepository.findHotFeedAfter(since, excludedUserIds, afterScore, afterId, Limit.of(size));
+    }
+
+    @Override
+    public String getURIByIdAndTitle(Long postId, String title) {
+        return Slug.of(title, postId);
     }
 
     @Override
@@ -80,106 +121,111 @@ public class PostServiceImpl implements PostService {
         if (!existsByURI(postURI)) {
             throw new PostNotFoundException("Post not found!");
         }
-        return Long.parseLong(postURI.substring(postURI.lastIndexOf('-') + 1));
+        return parseId(postURI);
     }
 
     @Override
-    public Post getPostForViewByURI(String postURI, String authUsername) {
-        Post post = findById(getIdByURI(postURI)).orElseThrow(() -> new PostNotFoundException("Post not found!"));
-        if (authUsername.isEmpty()) {
+    public Post getByURI(String postURI) {
+        Optional<Post> post = postRepository.findBySlug(postURI.toLowerCase());
+        if (post.isPresent()) {
+            return post.get();
+        }
+        return findById(parseId(postURI))
+                .filter(unslugged -> unslugged.getSlug() == null && getURIByIdAndTitle(unslugged.getId(), unslugged.getTitle()).equalsIgnoreCase(postURI))
+                .orElseThrow(() -> new PostNotFoundException("Post not found!"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Post getPostForViewByURI(String postURI, AuthContext authContext) {
+        Post post = getByURI(postURI);
+        if (!authContext.isAuthenticated()) {
             if (!isViewable(post)) {
                 throw new PostNotFoundException("Post not found!");
             }
-            filterComments(post.getComments());
             return post;
         }
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
         }
-        filterCommentsAuth(post.getComments(), authUser);
         return post;
     }
 
     @Override
     public boolean existsByURI(String postURI) {
-        Long id = Long.parseLong(postURI.substring(postURI.lastIndexOf('-') + 1));
-        Post post = findById(id).orElseThrow(() -> new PostNotFoundException("Post not found!"));
-        return getURIByIdAndTitle(post.getId(), post.getTitle()).equalsIgnoreCase(postURI);
+        if (postRepository.findIdBySlug(postURI.toLowerCase()).isPresent()) {
+            return true;
+        }
+        // posts the slug backfill hasn't reached yet are checked against their title
+        Long id = parseId(postURI);
+        return postRepository.findUnsluggedTitleById(id)
+                .map(title -> getURIByIdAndTitle(id, title).equalsIgnoreCase(postURI))
+                .orElse(false);
     }
 
     @Override
     @Transactional
-    public void like(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void like(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
         }
-        if (post.getLikedBy().contains(authUser)) {
+        int change = react(post, authUser, 1);
+        if (change == 0) {
             throw new IllegalStateException("You already liked this post!");
         }
-        if (post.getDislikedBy().contains(authUser)) {
-            postRepository.removeDislike(authUser.getId(), post.getId());
-            postRepository.changeRating(post, 1);
-        }
-        postRepository.insertLike(authUser.getId(), post.getId());
-        postRepository.changeRating(post, 1);
+        ratingFlushScheduler.changePostRating(post.getId(), change);
     }
 
     @Override
     @Transactional
-    public void removeLike(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void removeLike(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
         }
-        if (!post.getLikedBy().contains(authUser)) {
+        if (postRepository.removeReaction(authUser.getId(), post.getId(), 1) == 0) {
             throw new IllegalStateException("You haven't liked this post!");
         }
-        postRepository.removeLike(authUser.getId(), post.getId());
-        postRepository.changeRating(post, -1);
+        ratingFlushScheduler.changePostRating(post.getId(), -1);
     }
 
     @Override
     @Transactional
-    public void dislike(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void dislike(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
         }
-        if (post.getDislikedBy().contains(authUser)) {
+        int change = react(post, authUser, -1);
+        if (change == 0) {
             throw new IllegalStateException("You already disliked this post!");
         }
-        if (post.getLikedBy().contains(authUser)) {
-            postRepository.removeLike(authUser.getId(), post.getId());
-            postRepository.changeRating(post, -1);
-        }
-        postRepository.insertDislike(authUser.getId(), post.getId());
-        postRepository.changeRating(post, -1);
+        ratingFlushScheduler.changePostRating(post.getId(), change);
     }
 
 
     @Override
     @Transactional
-    public void removeDislike(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void removeDislike(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Invalid post!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
         }
-        if (!post.getDislikedBy().contains(authUser)) {
+        if (postRepository.removeReaction(authUser.getId(), post.getId(), -1) == 0) {
             throw new IllegalStateException("You haven't disliked this post!");
         }
-        postRepository.removeDislike(authUser.getId(), post.getId());
-        postRepository.changeRating(post, 1);
+        ratingFlushScheduler.changePostRating(post.getId(), 1);
     }
 
     @Override
-    public void changeTitle(String authUsername, Long postId, String newTitle) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void changeTitle(AuthContext authContext, Long postId, String newTitle) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -193,12 +239,12 @@ public class PostServiceImpl implements PostService {
         if (post.getTitle().equals(newTitle)) {
             throw new IllegalArgumentException("New title must be different from the old one!");
         }
-        postRepository.changeTitle(post, newTitle);
+        postRepository.changeTitle(post, newTitle, Slug.of(newTitle, post.getId()));
     }
 
     @Override
-    public void changeContent(String authUsername, Long postId, String newContent) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void changeContent(AuthContext authContext, Long postId, String newContent) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -216,8 +262,8 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
-    public void tempDelete(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void tempDelete(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -229,11 +275,12 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("This post is already deleted!");
         }
         postRepository.tempDelete(post);
+        postRankingIndex.remove(post.getId());
     }
 
     @Override
-    public void undelete(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void undelete(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -242,11 +289,13 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("This post isn't deleted!");
         }
         postRepository.undelete(post);
+        post.setDeleted(false);
+        putIfViewable(post);
     }
 
     @Override
-    public void permanentlyDelete(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void permanentlyDelete(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -255,11 +304,12 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("You can only delete your own posts!");
         }
         postRepository.delete(post);
+        postRankingIndex.remove(post.getId());
     }
 
     @Override
-    public void hide(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void hide(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!isViewableAuth(post, authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -271,11 +321,12 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("This post is already hidden!");
         }
         postRepository.hide(post);
+        postRankingIndex.remove(post.getId());
     }
 
     @Override
-    public void unhide(String authUsername, Long postId) {
-        User authUser = userService.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void unhide(AuthContext authContext, Long postId) {
+        User authUser = authContext.getUser();
         Post post = postRepository.findById(postId).orElseThrow(() -> new PostNotFoundException("Post not found!"));
         if (!post.getUser().equals(authUser)) {
             throw new PostNotFoundException("Post not found!");
@@ -284,6 +335,8 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("This post is not hidden!");
         }
         postRepository.unhide(post);
+        post.setHidden(false);
+        putIfViewable(post);
     }
 
     @Override
@@ -293,6 +346,7 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("This post is already deleted by an admin!");
         }
         postRepository.tempDeleteByAdmin(post);
+        postRankingIndex.remove(post.getId());
     }
 
     @Override
@@ -302,32 +356,20 @@ public class PostServiceImpl implements PostService {
             throw new IllegalStateException("This post is not deleted by an admin!");
         }
         postRepository.undeleteByAdmin(post);
+        post.setDeletedByAdmin(false);
+        putIfViewable(post);
     }
 
     @Override
-    public void filterComments(Set<Comment> comments) {
-        for (Iterator<Comment> i = comments.iterator(); i.hasNext(); ) {
-            Comment comment = i.next();
-            User user = comment.getUser();
-            if (comment.getDeleted() || comment.getHidden() || user.getPrivate() || comment.getDeletedByAdmin() || user.getDeleted() || !user.getEnabled()) {
-                i.remove();
-            } else {
-                filterComments(comment.getComments());
-            }
+    public void changeCommentCount(Post post, int change) {
+        if (change != 0) {
+            postRepository.changeCommentCount(post, change);
         }
     }
 
     @Override
-    public void filterCommentsAuth(Set<Comment> comments, User authUser) {
-        for (Iterator<Comment> i = comments.iterator(); i.hasNext(); ) {
-            Comment comment = i.next();
-            User user = comment.getUser();
-            if (!user.equals(authUser) && (comment.getDeleted() || comment.getHidden() || user.getPrivate() || comment.getDeletedByAdmin() || user.getDeleted() || !user.getEnabled() || user.getBlockedUsers().contains(authUser) || authUser.getBlockedUsers().contains(user))) {
-                i.remove();
-            } else {
-                filterCommentsAuth(comment.getComments(), authUser);
-            }
-        }
+    public RatingBacklogDto ratingBacklog() {
+        return ratingFlushScheduler.backlog();
     }
 
     @Override
@@ -344,4 +386,27 @@ public class PostServiceImpl implements PostService {
         }
         return !post.getHidden() && !post.getDeleted() && !post.getDeletedByAdmin() && userService.isViewableAuth(user, authUser);
     }
+
+    // returns the rating change, 0 when the user already had this reaction
+    private int react(Post post, User authUser, int reaction) {
+        try {
+            if (postRepository.insertReaction(authUser.getId(), post.getId(), reaction) == 1) {
+                return reaction;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent reaction by the same user won the insert
+            return 0;
+        }
+        return postRepository.changeReaction(authUser.getId(), post.getId(), reaction) * 2 * reaction;
+    }
+
+    private static Long parseId(String postURI) {
+        return Long.parseLong(postURI.substring(postURI.lastIndexOf('-') + 1));
+    }
+
+    private void putIfViewable(Post post) {
+        if (isViewable(post)) {
+            postRankingIndex.put(post.getId(), post.getRating(), post.getUser().getId());
+        }
+    }
 }
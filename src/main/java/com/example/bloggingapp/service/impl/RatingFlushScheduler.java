@@ -0,0 +1,189 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.PostRankDto;
+import com.example.bloggingapp.dto.RatingBacklogDto;
+import com.example.bloggingapp.repository.PostRepository;
+import com.example.bloggingapp.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// rating changes are summed per target in memory and written out in jdbc batches, so reactions never wait on a row lock
+@Component
+public class RatingFlushScheduler {
+    private static final String POST_UPDATE = "UPDATE posts SET rating = rating + ? WHERE id = ?";
+    private static final String COMMENT_UPDATE = "UPDATE comments SET rating = rating + ? WHERE id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final PostRepository postRepository;
+    private final PostRankingIndex postRankingIndex;
+    private final HotScoreRefresher hotScoreRefresher;
+    private final int threshold;
+    private final Map<Long, LongAdder> postChanges = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> commentChanges = new ConcurrentHashMap<>();
+    // recorders share the read lock, only dropping drained counters needs it exclusively
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+
+    public RatingFlushScheduler(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                TaskScheduler taskScheduler,
+                                PostRepository postRepository,
+                                PostRankingIndex postRankingIndex,
+                                HotScoreRefresher hotScoreRefresher,
+                                @Value("${ratings.flush-threshold:1000}") int threshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.taskScheduler = taskScheduler;
+        this.postRepository = postRepository;
+        this.postRankingIndex = postRankingIndex;
+        this.hotScoreRefresher = hotScoreRefresher;
+        this.threshold = threshold;
+    }
+
+    public void changePostRating(Long postId, int change) {
+        TransactionUtils.afterCommit(() -> record(postChanges, postId, change));
+    }
+
+    public void changeCommentRating(Long commentId, int change) {
+        TransactionUtils.afterCommit(() -> record(commentChanges, commentId, change));
+    }
+
+    public RatingBacklogDto backlog() {
+        long pendingChange = 0;
+        for (LongAdder change : postChanges.values()) {
+            pendingChange += Math.abs(change.sum());
+        }
+        for (LongAdder change : commentChanges.values()) {
+            pendingChange += Math.abs(change.sum());
+        }
+        return new RatingBacklogDto(postChanges.size(), commentChanges.size(), pendingChange, flushCount.get(), flushedRows.get(), failedFlushCount.get());
+    }
+
+    @Scheduled(fixedDelayString = "${ratings.flush-interval:1000}", initialDelayString = "${ratings.flush-interval:1000}")
+    public void flush() {
+        flushRequested.set(false);
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            drainAndWrite();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushLock.lock();
+        try {
+            drainAndWrite();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drainAndWrite() {
+        Map<Long, Long> posts = drain(postChanges);
+        Map<Long, Long> comments = drain(commentChanges);
+        if (posts.isEmpty() && comments.isEmpty()) {
+            return;
+        }
+        flushCount.incrementAndGet();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batchUpdate(POST_UPDATE, posts);
+                batchUpdate(COMMENT_UPDATE, comments);
+            });
+        } catch (RuntimeException e) {
+            failedFlushCount.incrementAndGet();
+            posts.forEach((id, change) -> record(postChanges, id, change));
+            comments.forEach((id, change) -> record(commentChanges, id, change));
+            return;
+        }
+        flushedRows.addAndGet(posts.size() + comments.size());
+        if (!posts.isEmpty()) {
+            for (PostRankDto post : postRepository.findRankingByIds(posts.keySet())) {
+                postRankingIndex.put(post.id(), post.rating(), post.userId());
+            }
+            posts.keySet().forEach(hotScoreRefresher::markDirty);
+        }
+    }
+
+    private void record(Map<Long, LongAdder> changes, Long id, long change) {
+        lock.readLock().lock();
+        try {
+            changes.computeIfAbsent(id, key -> new LongAdder()).add(change);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (postChanges.size() + commentChanges.size() >= threshold && flushRequested.compareAndSet(false, true)) {
+            try {
+                taskScheduler.schedule(this::flush, Instant.now());
+            } catch (TaskRejectedException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private Map<Long, Long> drain(Map<Long, LongAdder> changes) {
+        Map<Long, Long> drained = new HashMap<>();
+        List<Long> idle = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : changes.entrySet()) {
+            long change = entry.getValue().sumThenReset();
+            if (change != 0) {
+                drained.put(entry.getKey(), change);
+            } else {
+                idle.add(entry.getKey());
+            }
+        }
+        if (!idle.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                for (Long id : idle) {
+                    if (changes.get(id).sum() == 0) {
+                        changes.remove(id);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return drained;
+    }
+
+    private void batchUpdate(String sql, Map<Long, Long> drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(drained.size());
+        for (Map.Entry<Long, Long> entry : drained.entrySet()) {
+            rows.add(new Object[]{entry.getValue(), entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.bloggingapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+// copies rows from the old like/dislike join tables into the reaction tables once, the old tables are left to be dropped by hand
+@Component
+@RequiredArgsConstructor
+public class ReactionBackfill implements ApplicationRunner {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate("post_likes", "post_reactions", "post_id", 1);
+        migrate("post_dislikes", "post_reactions", "post_id", -1);
+        migrate("comment_likes", "comment_reactions", "comment_id", 1);
+        migrate("comment_dislikes", "comment_reactions", "comment_id", -1);
+    }
+
+    private void migrate(String source, String target, String targetColumn, int reaction) {
+        try {
+            jdbcTemplate.queryForList("SELECT 1 FROM " + source + " WHERE 1 = 0");
+        } catch (DataAccessException e) {
+            return;
+        }
+        String name = "copy_" + source;
+        Integer done = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migrations WHERE name = ?", Integer.class, name);
+        if (done != null && done > 0) {
+            return;
+        }
+        String missing = "FROM " + source + " s WHERE NOT EXISTS (SELECT 1 FROM " + target + " r WHERE r." + targetColumn + " = s." + targetColumn + " AND r.user_id = s.user_id)";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // the marker goes first, so an instance booting at the same time blocks on its key and rolls back
+                jdbcTemplate.update("INSERT INTO data_migrations (name, completed_at) VALUES (?, ?)", name, LocalDateTime.now());
+                jdbcTemplate.update("INSERT INTO " + target + " (" + targetColumn + ", user_id, reaction) SELECT s." + targetColumn + ", s.user_id, ? " + missing, reaction);
+                Integer uncopied = jdbcTemplate.queryForObject("SELECT COUNT(*) " + missing, Integer.class);
+                if (uncopied != null && uncopied > 0) {
+                    throw new IllegalStateException(uncopied + " rows of " + source + " were not copied to " + target);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            // another instance finished the copy first
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bloggingapp.service.impl;
+
+import com.example.bloggingapp.dto.SlugSourceDto;
+import com.example.bloggingapp.repository.CommentRepository;
+import com.example.bloggingapp.repository.PostRepository;
+import com.example.bloggingapp.utils.Slug;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// fills in the slug of posts and comments created before that column existed
+@Component
+public class SlugBackfill implements ApplicationRunner {
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final int batchSize;
+
+    public SlugBackfill(PostRepository postRepository,
+                        CommentRepository commentRepository,
+                        @Value("${slugs.backfill-batch-size:1000}") int batchSize) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (List<SlugSourceDto> posts = postRepository.findUnslugged(Limit.of(batchSize)); !posts.isEmpty(); posts = postRepository.findUnslugged(Limit.of(batchSize))) {
+            for (SlugSourceDto post : posts) {
+                postRepository.changeSlug(post.id(), Slug.of(post.text(), post.id()));
+            }
+        }
+        for (List<SlugSourceDto> comments = commentRepository.findUnslugged(Limit.of(batchSize)); !comments.isEmpty(); comments = commentRepository.findUnslugged(Limit.of(batchSize))) {
+            for (SlugSourceDto comment : comments) {
+                commentRepository.changeSlug(comment.id(), Slug.of(comment.text(), comment.id()));
+            }
+        }
+    }
+}
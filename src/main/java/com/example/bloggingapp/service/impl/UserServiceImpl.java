@@ -1,28 +1,31 @@
 package com.example.bloggingapp.service.impl;
 
 
-import com.example.bloggingapp.config.FileStorageConfig;
+import com.example.bloggingapp.dto.UserFollowDto;
 import com.example.bloggingapp.dto.request.EmailChangeRequest;
 import com.example.bloggingapp.dto.request.PasswordChangeRequest;
 import com.example.bloggingapp.exception.UserNotFoundException;
 import com.example.bloggingapp.model.User;
+import com.example.bloggingapp.repository.PostRepository;
 import com.example.bloggingapp.repository.UserRepository;
+import com.example.bloggingapp.security.AuthContext;
+import com.example.bloggingapp.security.AuthPrincipalCache;
 import com.example.bloggingapp.security.JwtUtils;
 import com.example.bloggingapp.service.ImageService;
 import com.example.bloggingapp.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -34,6 +37,10 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
     private final ImageService imageService;
+    private final AuthPrincipalCache authPrincipalCache;
+    private final PostRankingIndex postRankingIndex;
+    private final PostRepository postRepository;
+    private final BlockIndex blockIndex;
 
     @Override
     public User save(User user) {
@@ -61,153 +68,170 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public User getUserForViewByUsername(String username, String authUsername) {
+    @Transactional(readOnly = true)
+    public User getUserForViewByUsername(String username, AuthContext authContext) {
         User user = findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        if (authUsername.isEmpty()) {
+        if (!authContext.isAuthenticated()) {
             if (!isViewable(user)) {
                 throw new UserNotFoundException("User not found!");
             }
             return user;
         }
-        User authUser = findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        if (authUser.getBlockedUsers().contains(user)) {
+        User authUser = authContext.getUser();
+        if (blockIndex.isBlocking(authUser.getId(), user.getId())) {
             return new User(username, null, null, null, null, false);
         }
-        if (user.getBlockedUsers().contains(authUser)) {
+        if (blockIndex.isBlocking(user.getId(), authUser.getId())) {
             return new User(username, null, null, null, null, false);
         }
         return user;
     }
 
     @Override
-    public Set<User> findFollowers(String username, String authUsername) {
+    @Transactional(readOnly = true)
+    public List<UserFollowDto> findFollowers(String username, String afterUsername, Integer size, AuthContext authContext) {
         User user = findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        Set<User> followers = user.getFollowers();
-        if (authUsername.isEmpty()) {
+        Long afterId = afterUsername == null ? null : userRepository.findIdByUsername(afterUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        if (!authContext.isAuthenticated()) {
             if (!isViewable(user)) {
                 throw new UserNotFoundException("User not found!");
             }
-            followers.removeIf(follower -> !isViewable(user));
-            return followers;
+            return userRepository.findFollowerNames(user, afterId, Limit.of(size));
         }
-        User authUser = findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(user, authUser)) {
             throw new UserNotFoundException("User not found!");
         }
-        followers.removeIf(follower -> !isViewableAuth(user, authUser));
-        return followers;
+        return userRepository.findFollowerNamesAuth(user, authUser, afterId, Limit.of(size));
     }
 
     @Override
-    public Set<User> findFollowing(String username, String authUsername) {
+    @Transactional(readOnly = true)
+    public List<UserFollowDto> findFollowing(String username, String afterUsername, Integer size, AuthContext authContext) {
         User user = findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        Set<User> following = user.getFollowing();
-        if (authUsername.isEmpty()) {
+        Long afterId = afterUsername == null ? null : userRepository.findIdByUsername(afterUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        if (!authContext.isAuthenticated()) {
             if (!isViewable(user)) {
                 throw new UserNotFoundException("User not found!");
             }
-            following.removeIf(follower -> !isViewable(user));
-            return following;
+            return userRepository.findFollowingNames(user, afterId, Limit.of(size));
         }
-        User authUser = findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("User not found!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(user, authUser)) {
             throw new UserNotFoundException("User not found!");
         }
-        following.removeIf(follower -> !isViewableAuth(user, authUser));
-        return following;
+        return userRepository.findFollowingNamesAuth(user, authUser, afterId, Limit.of(size));
     }
 
     @Override
-    public void follow(String username, String authUsername) {
+    @Transactional
+    public void follow(String username, AuthContext authContext) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(user, authUser)) {
             throw new UserNotFoundException("User not found!");
         }
         if (authUser.equals(user)) {
             throw new IllegalArgumentException("You cannot follow yourself!");
         }
-        if (user.getFollowers().contains(authUser)) {
+        int followed;
+        try {
+            followed = userRepository.follow(user.getId(), authUser.getId());
+        } catch (DataIntegrityViolationException e) {
+            followed = 0;
+        }
+        if (followed == 0) {
             throw new IllegalStateException("You already follow this user!");
         }
-        userRepository.follow(user.getId(), authUser.getId());
+        changeFollowCounts(user, authUser, 1);
     }
 
     @Override
-    public void unfollow(String username, String authUsername) {
+    @Transactional
+    public void unfollow(String username, AuthContext authContext) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (!isViewableAuth(user, authUser)) {
             throw new UserNotFoundException("User not found!");
         }
         if (authUser.equals(user)) {
             throw new IllegalArgumentException("You cannot unfollow yourself!");
         }
-        if (!authUser.getFollowing().contains(user)) {
+        if (userRepository.unfollow(user.getId(), authUser.getId()) == 0) {
             throw new IllegalStateException("You aren't following this user!");
         }
-        userRepository.unfollow(user.getId(), authUser.getId());
+        changeFollowCounts(user, authUser, -1);
     }
 
     @Override
-    public void block(String username, String authUsername) {
+    @Transactional
+    public void block(String username, AuthContext authContext) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
-        if (!isViewable(user) || user.getBlockedUsers().contains(authUser)) {
+        User authUser = authContext.getUser();
+        if (!isViewable(user) || blockIndex.isBlocking(user.getId(), authUser.getId())) {
             throw new UserNotFoundException("User not found!");
         }
         if (authUser.equals(user)) {
             throw new IllegalArgumentException("You cannot block yourself!");
         }
-        if (authUser.getBlockedUsers().contains(user)) {
+        if (blockIndex.isBlocking(authUser.getId(), user.getId())) {
             throw new IllegalStateException("You already blocked this user!");
         }
-        if (user.getFollowers().contains(authUser)) {
-            userRepository.unfollow(user.getId(), authUser.getId());
+        if (userRepository.unfollow(user.getId(), authUser.getId()) > 0) {
+            changeFollowCounts(user, authUser, -1);
         }
-        if (user.getFollowing().contains(authUser)) {
-            userRepository.unfollow(authUser.getId(), user.getId());
+        if (userRepository.unfollow(authUser.getId(), user.getId()) > 0) {
+            changeFollowCounts(authUser, user, -1);
         }
         userRepository.block(user.getId(), authUser.getId());
+        blockIndex.block(authUser.getId(), user.getId());
     }
 
     @Override
-    public void unblock(String username, String authUsername) {
+    @Transactional
+    public void unblock(String username, AuthContext authContext) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
-        if (!isViewable(user) || user.getBlockedUsers().contains(authUser)) {
+        User authUser = authContext.getUser();
+        if (!isViewable(user) || blockIndex.isBlocking(user.getId(), authUser.getId())) {
             throw new UserNotFoundException("User not found!");
         }
         if (authUser.equals(user)) {
             throw new IllegalArgumentException("You cannot unblock yourself!");
         }
-        if (!authUser.getBlockedUsers().contains(user)) {
+        if (!blockIndex.isBlocking(authUser.getId(), user.getId())) {
             throw new IllegalStateException("You haven't blocked this user!");
         }
         userRepository.unblock(user.getId(), authUser.getId());
+        blockIndex.unblock(authUser.getId(), user.getId());
     }
 
     @Override
-    public String changeUsername(String newUsername, String authUsername) {
-        if (authUsername.equals(newUsername)) {
+    public Set<Long> findBlockRelatedUserIds(User user) {
+        return blockIndex.findBlockRelatedUserIds(user.getId());
+    }
+
+    @Override
+    public String changeUsername(String newUsername, AuthContext authContext) {
+        if (authContext.getUsername().equals(newUsername)) {
             throw new IllegalArgumentException("New username must be different from the old one!");
         }
         if (userRepository.existsByUsernameIgnoreCase(newUsername)) {
             throw new IllegalStateException("Username is already in use!");
         }
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         userRepository.changeUsername(authUser, newUsername);
+        authPrincipalCache.evict(authContext.getUsername());
         return jwtUtils.generateToken(newUsername, authUser.getRoles());
     }
 
     @Override
-    public void changeEmail(EmailChangeRequest request, String authUsername) {
+    public void changeEmail(EmailChangeRequest request, AuthContext authContext) {
         try {
-            authManager.authenticate(new UsernamePasswordAuthenticationToken(authUsername, request.password()));
+            authManager.authenticate(new UsernamePasswordAuthenticationToken(authContext.getUsername(), request.password()));
         } catch (AuthenticationException e) {
             throw new BadCredentialsException("Incorrect password");
         }
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (authUser.getEmail().equalsIgnoreCase(request.newEmail())) {
             throw new IllegalArgumentException("New email must be different from the old one!");
         }
@@ -218,14 +242,14 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void changePassword(PasswordChangeRequest request, String authUsername) {
+    public void changePassword(PasswordChangeRequest request, AuthContext authContext) {
         String encodedPassword = passwordEncoder.encode(request.newPassword());
         try {
-            authManager.authenticate(new UsernamePasswordAuthenticationToken(authUsername, request.password()));
+            authManager.authenticate(new UsernamePasswordAuthenticationToken(authContext.getUsername(), request.password()));
         } catch (AuthenticationException e) {
             throw new BadCredentialsException("Incorrect password");
         }
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+        User authUser = authContext.getUser();
         if (passwordEncoder.matches(request.newPassword(), authUser.getPassword())) {
             throw new IllegalArgumentException("New password must be different from the old one!");
         }
@@ -233,8 +257,8 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void changeDescription(String newDescription, String authUsername) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void changeDescription(String newDescription, AuthContext authContext) {
+        User authUser = authContext.getUser();
         if (authUser.getDescription().equals(newDescription)) {
             throw new IllegalArgumentException("New description must be different from the old one!");
         }
@@ -242,8 +266,8 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void changeProfilePicture(MultipartFile profilePicture, String authUsername) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    public void changeProfilePicture(MultipartFile profilePicture, AuthContext authContext) {
+        User authUser = authContext.getUser();
         if (profilePicture == null || profilePicture.isEmpty()) {
             userRepository.changeProfilePictureName(authUser, "default.jpg");
             return;
@@ -252,82 +276,137 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("Profile picture is invalid!");
         }
         String profilePictureName = authUser.getProfilePictureName();
-        if (authUser.getProfilePictureName() == null) {
-            profilePictureName = "default.jpg";
-        }
-        Path path = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, profilePictureName);
         userRepository.changeProfilePictureName(authUser, imageService.save(profilePicture));
-        if (!profilePictureName.equals("default.jpg")) {
-            try {
-                Files.delete(path);
-            } catch (IOException ignored) {
-            }
+        if (profilePictureName != null && !profilePictureName.equals("default.jpg")) {
+            imageService.delete(profilePictureName);
         }
     }
 
     @Override
-    public void goPrivate(String authUsername) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void goPrivate(AuthContext authContext) {
+        User authUser = authContext.getUser();
         if (authUser.getPrivate()) {
             throw new IllegalStateException("You are already private!");
         }
+        boolean wasViewable = isViewable(authUser);
         userRepository.goPrivate(authUser);
+        changeFollowVisibility(authUser, wasViewable, false);
+        postRepository.recountCommentsByCommenter(authUser);
+        postRankingIndex.removeUser(authUser.getId());
+        authPrincipalCache.evict(authContext.getUsername());
     }
 
     @Override
-    public void goPublic(String authUsername) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void goPublic(AuthContext authContext) {
+        User authUser = authContext.getUser();
         if (!authUser.getPrivate()) {
             throw new IllegalStateException("You are already public!");
         }
+        boolean wasViewable = isViewable(authUser);
         userRepository.goPublic(authUser);
+        changeFollowVisibility(authUser, wasViewable, !authUser.getDeleted() && authUser.getEnabled());
+        postRepository.recountCommentsByCommenter(authUser);
+        postRankingIndex.invalidate();
+        authPrincipalCache.evict(authContext.getUsername());
     }
 
     @Override
-    public void tempDelete(String authUsername) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void tempDelete(AuthContext authContext) {
+        User authUser = authContext.getUser();
         if (authUser.getDeleted()) {
             throw new IllegalStateException("User is already deleted!");
         }
+        boolean wasViewable = isViewable(authUser);
         userRepository.tempDelete(authUser);
+        changeFollowVisibility(authUser, wasViewable, false);
+        postRepository.recountCommentsByCommenter(authUser);
+        postRankingIndex.removeUser(authUser.getId());
+        authPrincipalCache.evict(authContext.getUsername());
     }
 
     @Override
-    public void undelete(String authUsername) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void undelete(AuthContext authContext) {
+        User authUser = authContext.getUser();
         if (!authUser.getDeleted()) {
             throw new IllegalStateException("User is not deleted!");
         }
+        boolean wasViewable = isViewable(authUser);
         userRepository.undelete(authUser);
+        changeFollowVisibility(authUser, wasViewable, !authUser.getPrivate() && authUser.getEnabled());
+        postRepository.recountCommentsByCommenter(authUser);
+        postRankingIndex.invalidate();
+        authPrincipalCache.evict(authContext.getUsername());
     }
 
     @Override
-    public void permanentlyDelete(String authUsername, String password) {
-        User authUser = userRepository.findByUsername(authUsername).orElseThrow(() -> new UserNotFoundException("Please log in again!"));
+    @Transactional
+    public void permanentlyDelete(AuthContext authContext, String password) {
+        User authUser = authContext.getUser();
         try {
-            authManager.authenticate(new UsernamePasswordAuthenticationToken(authUsername, password));
+            authManager.authenticate(new UsernamePasswordAuthenticationToken(authContext.getUsername(), password));
         } catch (AuthenticationException e) {
             throw new BadCredentialsException("Incorrect password!");
         }
+        Set<Long> commentedPostIds = postRepository.findCommentedPostIds(authUser);
+        // the follow rows are deleted with the user, so their counts are dropped first
+        changeFollowVisibility(authUser, isViewable(authUser), false);
         userRepository.delete(authUser);
+        postRepository.recountComments(commentedPostIds);
+        postRankingIndex.removeUser(authUser.getId());
+        blockIndex.removeUser(authUser.getId());
+        authPrincipalCache.evict(authContext.getUsername());
     }
 
     @Override
+    @Transactional
     public void disable(String username) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
         if (!user.getEnabled()) {
             throw new IllegalStateException("User is already disabled!");
         }
+        boolean wasViewable = isViewable(user);
         userRepository.disable(user);
+        changeFollowVisibility(user, wasViewable, false);
+        postRepository.recountCommentsByCommenter(user);
+        postRankingIndex.removeUser(user.getId());
+        authPrincipalCache.evict(username);
     }
 
     @Override
+    @Transactional
     public void enable(String username) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException("User not found!"));
         if (user.getEnabled()) {
             throw new IllegalStateException("User is already enabled!");
         }
+        boolean wasViewable = isViewable(user);
         userRepository.enable(user);
+        changeFollowVisibility(user, wasViewable, !user.getPrivate() && !user.getDeleted());
+        postRepository.recountCommentsByCommenter(user);
+        postRankingIndex.invalidate();
+        authPrincipalCache.evict(username);
+    }
+
+    // follow counts only include viewable users, like the follow lists do
+    private void changeFollowCounts(User user, User follower, int change) {
+        if (isViewable(follower)) {
+            userRepository.changeFollowerCount(user.getId(), change);
+        }
+        if (isViewable(user)) {
+            userRepository.changeFollowingCount(follower.getId(), change);
+        }
+    }
+
+    private void changeFollowVisibility(User user, boolean wasViewable, boolean viewable) {
+        if (wasViewable != viewable) {
+            int change = viewable ? 1 : -1;
+            userRepository.changeFollowedUsersFollowerCount(user.getId(), change);
+            userRepository.changeFollowersFollowingCount(user.getId(), change);
+        }
     }
 
     @Override
@@ -340,6 +419,6 @@ public class UserServiceImpl implements UserService {
         if (authUser.equals(user)) {
             return true;
         }
-        return !user.getPrivate() && !user.getDeleted() && user.getEnabled() && !user.getBlockedUsers().contains(authUser) && !authUser.getBlockedUsers().contains(user);
+        return !user.getPrivate() && !user.getDeleted() && user.getEnabled() && !blockIndex.isBlockRelated(user.getId(), authUser.getId());
     }
 }
\ No newline at end of file
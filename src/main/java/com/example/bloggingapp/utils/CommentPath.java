@@ -0,0 +1,11 @@
+package com.example.bloggingapp.utils;
+
+public class CommentPath {
+    public static final int SEGMENT_LENGTH = 11;
+    public static final int MAX_DEPTH = 68;
+    public static final int MAX_LENGTH = (MAX_DEPTH + 1) * SEGMENT_LENGTH;
+
+    public static String of(String parentPath, Long id) {
+        return (parentPath == null ? "" : parentPath) + String.format("%010d/", id);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.bloggingapp.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public class HotScore {
+    private static final long EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    // every 12.5 hours of age weigh as much as a tenfold rating
+    private static final double SECONDS_PER_ORDER = 45000;
+
+    public static double compute(int rating, LocalDateTime createdAt) {
+        double order = Math.log10(Math.max(Math.abs(rating), 1));
+        long seconds = createdAt.toEpochSecond(ZoneOffset.UTC) - EPOCH;
+        double score = Integer.signum(rating) * order + seconds / SECONDS_PER_ORDER;
+        return Math.round(score * 1e7) / 1e7;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bloggingapp.utils;
+
+public class Slug {
+    public static final int MAX_LENGTH = 100;
+
+    // the text is cut after 30 characters, or after 31 when the cut would split a word
+    public static String of(String text, Long id) {
+        if (text.length() > 30 && text.charAt(30) != ' ') {
+            text = text.substring(0, 31);
+        } else if (text.length() > 30) {
+            text = text.substring(0, 30);
+        }
+        return UriSanitizer.encode(text + "-" + id);
+    }
+}
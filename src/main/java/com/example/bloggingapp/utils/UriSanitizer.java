@@ -1,18 +1,40 @@
 package com.example.bloggingapp.utils;
 
+import java.util.Locale;
+
 public class UriSanitizer {
     public static String encode(String input) {
-        StringBuilder sb = new StringBuilder();
-        input = input.toLowerCase();
-        for (int i = 0; i < input.length(); i++) {
+        String encoded = isAsciiLowerCaseSafe() ? encode(input, true) : null;
+        // outside ascii String.toLowerCase can change the length, so non-ascii input is lowercased as a whole first
+        return encoded != null ? encoded : encode(input.toLowerCase(), false);
+    }
+
+    // lowercases, filters and maps spaces to dashes in one pass, returns null on non-ascii input when asciiOnly is set
+    private static String encode(String input, boolean asciiOnly) {
+        int length = input.length();
+        char[] encoded = new char[length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
             char c = input.charAt(i);
+            if (c >= 0x80 && asciiOnly) {
+                return null;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
             if (isAllowedChar(c)) {
-                sb.append(c);
-            } else if (i > 0 && i < input.length() - 1 && input.charAt(i - 1) == ' ' && input.charAt(i + 1) == ' ') {
-                sb.deleteCharAt(sb.length() - 1);
+                encoded[size++] = c == ' ' ? '-' : c;
+            } else if (i > 0 && i < length - 1 && input.charAt(i - 1) == ' ' && input.charAt(i + 1) == ' ') {
+                size--;
             }
         }
-        return sb.toString().replaceAll(" ", "-");
+        return new String(encoded, 0, size);
+    }
+
+    // turkish and azerbaijani lowercase the ascii 'I' to a dotless i
+    private static boolean isAsciiLowerCaseSafe() {
+        String language = Locale.getDefault().getLanguage();
+        return !language.equals("tr") && !language.equals("az");
     }
 
     private static boolean isAllowedChar(char c) {
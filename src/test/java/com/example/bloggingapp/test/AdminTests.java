@@ -1,5 +1,10 @@
 package com.example.bloggingapp.test;
 
+import com.example.bloggingapp.dto.RatingBacklogDto;
+import com.example.bloggingapp.enums.Role;
+import com.example.bloggingapp.security.JwtUtils;
+import com.example.bloggingapp.service.impl.RatingFlushScheduler;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -11,7 +16,12 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -25,12 +35,26 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 public class AdminTests {
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private JwtUtils jwtUtils;
+    @Autowired
+    private RatingFlushScheduler ratingFlushScheduler;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
     @Order(0)
     void contextLoads() {
     }
 
+    @Test
+    @Order(0)
+    void follow_WithNewUser_WithNewUsersToken_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer " + jwtUtils.generateToken("new_user", List.of(Role.USER)))
+                        .param("username", "new_user"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Order(1)
     @WithMockUser(value = "admin_user", roles = "ADMIN")
@@ -47,6 +71,15 @@ public class AdminTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Order(2)
+    void follow_WithNewUser_WithNewUsersToken_WhenDisabled_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer " + jwtUtils.generateToken("new_user", List.of(Role.USER)))
+                        .param("username", "new_user"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @Order(3)
     @WithMockUser(value = "admin_user", roles = "ADMIN")
@@ -130,4 +163,34 @@ public class AdminTests {
                         .param("username", "first_user"))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    @Order(10)
+    @WithMockUser(value = "admin_user", roles = "ADMIN")
+    void ratingBacklog_AfterLike_ShouldBeDrainedByFlush() throws Exception {
+        mockMvc.perform(post("/post/like")
+                        .param("postURI", "second-users-post-2"))
+                .andExpect(status().isOk());
+        RatingBacklogDto before = ratingBacklog();
+        assertTrue(before.pendingPosts() >= 1);
+        ratingFlushScheduler.flush();
+        RatingBacklogDto after = ratingBacklog();
+        assertEquals(0, after.pendingChange());
+        assertTrue(after.flushedRows() > before.flushedRows());
+    }
+
+    @Test
+    @Order(10)
+    @WithMockUser("first_user")
+    void ratingBacklog_AsFirstUser_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(get("/admin/ratingBacklog"))
+                .andExpect(status().isForbidden());
+    }
+
+    private RatingBacklogDto ratingBacklog() throws Exception {
+        MvcResult result = mockMvc.perform(get("/admin/ratingBacklog"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), RatingBacklogDto.class);
+    }
 }
@@ -3,6 +3,8 @@ package com.example.bloggingapp.test;
 import com.example.bloggingapp.config.FileStorageConfig;
 import com.example.bloggingapp.dto.request.LoginRequest;
 import com.example.bloggingapp.dto.request.RegisterRequest;
+import com.example.bloggingapp.enums.Role;
+import com.example.bloggingapp.security.JwtUtils;
 import com.example.bloggingapp.service.ImageTestService;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -19,9 +21,13 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -40,6 +46,8 @@ public class AuthTests {
      */
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private JwtUtils jwtUtils;
     private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private final ObjectWriter objectWriter = objectMapper.writerWithDefaultPrettyPrinter();
     private final ImageTestService imageTestService;
@@ -128,4 +136,73 @@ public class AuthTests {
                         .content(objectWriter.writeValueAsString(disabledUserLoginRequest)))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    @Order(3)
+    void follow_WithFirstUser_WithFirstUsersToken_ShouldReturnBadRequest() throws Exception {
+        LoginRequest firstUserLoginRequest = new LoginRequest("first_user", "firstUser");
+        MvcResult result = mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectWriter.writeValueAsString(firstUserLoginRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        String token = objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+        //The second request is served from the verified token cache
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/user/follow")
+                            .header("Authorization", "Bearer " + token)
+                            .param("username", "first_user"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    @Order(3)
+    void follow_WithFirstUser_WithInvalidToken_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer invalid.token.value")
+                        .param("username", "first_user"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Order(3)
+    void follow_WithFirstUser_WithCachedToken_WhenExpired_ShouldReturnUnauthorized() throws Exception {
+        String token = jwtUtils.generateToken("first_user", List.of(Role.USER), Duration.ofSeconds(2));
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer " + token)
+                        .param("username", "first_user"))
+                .andExpect(status().isBadRequest());
+        Thread.sleep(Duration.between(Instant.now(), jwtUtils.parse(token).orElseThrow().expiration()).plusMillis(500).toMillis());
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer " + token)
+                        .param("username", "first_user"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Order(3)
+    void follow_WithFirstUser_WithTamperedCachedToken_ShouldReturnUnauthorized() throws Exception {
+        String token = jwtUtils.generateToken("first_user", List.of(Role.USER));
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer " + token)
+                        .param("username", "first_user"))
+                .andExpect(status().isBadRequest());
+        //The last character of the signature only carries padding bits, so one in the middle is changed
+        int index = token.length() - 10;
+        String tampered = token.substring(0, index) + (token.charAt(index) == 'A' ? 'B' : 'A') + token.substring(index + 1);
+        mockMvc.perform(post("/user/follow")
+                        .header("Authorization", "Bearer " + tampered)
+                        .param("username", "first_user"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Order(3)
+    void parse_WithMalformedTokens_ShouldReturnEmpty() {
+        for (String token : List.of("", "invalid", "invalid.token", "invalid.token.value", "a.b.c.d")) {
+            if (jwtUtils.parse(token).isPresent()) {
+                throw new RuntimeException("Malformed token parsed: " + token);
+            }
+        }
+    }
 }
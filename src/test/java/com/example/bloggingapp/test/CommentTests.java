@@ -1,8 +1,11 @@
 package com.example.bloggingapp.test;
 
 import com.example.bloggingapp.dto.CommentDto;
+import com.example.bloggingapp.dto.PostDto;
 import com.example.bloggingapp.dto.request.CreateCommentRequest;
 import com.example.bloggingapp.service.TestService;
+import com.example.bloggingapp.service.impl.CommentPathBackfill;
+import com.example.bloggingapp.utils.CommentPath;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -16,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
@@ -41,6 +45,10 @@ public class CommentTests {
     */
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private CommentPathBackfill commentPathBackfill;
     private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
     private final ObjectWriter objectWriter = objectMapper.writer().withDefaultPrettyPrinter();
     private final TestService testService;
@@ -107,6 +115,39 @@ public class CommentTests {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @Order(3)
+    @WithMockUser("new_user")
+    public void createComment_OnFourteenthComment_AsNewUser_WhenTooDeep_ShouldReturnBadRequest() throws Exception {
+        jdbcTemplate.update("UPDATE comments SET depth = ? WHERE id = 14", CommentPath.MAX_DEPTH);
+        try {
+            CreateCommentRequest request = new CreateCommentRequest(null, 14L, "This comment is too deep");
+            mockMvc.perform(post("/comment/create")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectWriter.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            jdbcTemplate.update("UPDATE comments SET depth = 0 WHERE id = 14");
+        }
+    }
+
+    @Test
+    @Order(3)
+    public void backfillPaths_WithFifteenthComment_WhenTooDeep_ShouldLeavePathEmpty() {
+        String path = jdbcTemplate.queryForObject("SELECT path FROM comments WHERE id = 15", String.class);
+        jdbcTemplate.update("UPDATE comments SET depth = ? WHERE id = 14", CommentPath.MAX_DEPTH);
+        jdbcTemplate.update("UPDATE comments SET path = NULL WHERE id = 15");
+        try {
+            commentPathBackfill.run(null);
+            if (jdbcTemplate.queryForObject("SELECT path FROM comments WHERE id = 15", String.class) != null) {
+                throw new RuntimeException("Path longer than the column was written");
+            }
+        } finally {
+            jdbcTemplate.update("UPDATE comments SET depth = 0 WHERE id = 14");
+            jdbcTemplate.update("UPDATE comments SET path = ? WHERE id = 15", path);
+        }
+    }
+
     @Test
     @Order(4)
     public void getComments_WithSecondComment_ShouldReturnCommentDtos() throws Exception {
@@ -153,6 +194,58 @@ public class CommentTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @Order(4)
+    @WithMockUser("new_user")
+    public void getComment_WithFourteenthComment_AsNewUser_ShouldReturnViewableReplies() throws Exception {
+        MvcResult result = mockMvc.perform(get("/comment/" + fourteenthCommentURI))
+                .andExpect(status().isOk()).andReturn();
+        CommentDto comment = objectMapper.readValue(result.getResponse().getContentAsString(), CommentDto.class);
+        if (comment.comments().size() != 1 || comment.comments().iterator().next().id() != 15L) {
+            throw new RuntimeException("Wrong replies");
+        }
+    }
+
+    @Test
+    @Order(4)
+    @WithMockUser("new_user")
+    public void getComment_WithFourteenthComment_AsNewUser_WhenPathMissing_ShouldReturnViewableReplies() throws Exception {
+        String path = jdbcTemplate.queryForObject("SELECT path FROM comments WHERE id = 14", String.class);
+        jdbcTemplate.update("UPDATE comments SET path = NULL WHERE id = 14");
+        try {
+            MvcResult result = mockMvc.perform(get("/comment/" + fourteenthCommentURI))
+                    .andExpect(status().isOk()).andReturn();
+            CommentDto comment = objectMapper.readValue(result.getResponse().getContentAsString(), CommentDto.class);
+            if (comment.comments().size() != 1 || comment.comments().iterator().next().id() != 15L) {
+                throw new RuntimeException("Wrong replies");
+            }
+        } finally {
+            jdbcTemplate.update("UPDATE comments SET path = ? WHERE id = 14", path);
+        }
+    }
+
+    @Test
+    @Order(4)
+    @WithMockUser("private_user")
+    public void getPost_WithSecondPost_AsPrivateUser_ShouldCountOwnComments() throws Exception {
+        MvcResult result = mockMvc.perform(get("/post/second-users-post-2")).andExpect(status().isOk()).andReturn();
+        PostDto postDto = objectMapper.readValue(result.getResponse().getContentAsString(), PostDto.class);
+        if (postDto.commentCount() != 6) {
+            throw new RuntimeException("Wrong comment count");
+        }
+    }
+
+    @Test
+    @Order(4)
+    @WithMockUser("third_user")
+    public void getPost_WithSecondPost_AsThirdUser_ShouldNotCountBlockedUsersComments() throws Exception {
+        MvcResult result = mockMvc.perform(get("/post/second-users-post-2")).andExpect(status().isOk()).andReturn();
+        PostDto postDto = objectMapper.readValue(result.getResponse().getContentAsString(), PostDto.class);
+        if (postDto.commentCount() != 3) {
+            throw new RuntimeException("Wrong comment count");
+        }
+    }
+
     @Test
     @Order(4)
     public void getComment_WithPrivateUsersComment_ShouldReturnNotFound() throws Exception {
@@ -242,6 +335,21 @@ public class CommentTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @Order(8)
+    @WithMockUser("new_user")
+    public void permanentlyDelete_WithFourteenthComment_AsNewUser_WhenPathMissing_ShouldReturnBadRequest() throws Exception {
+        String path = jdbcTemplate.queryForObject("SELECT path FROM comments WHERE id = 14", String.class);
+        jdbcTemplate.update("UPDATE comments SET path = NULL WHERE id = 14");
+        try {
+            mockMvc.perform(post("/comment/permanentlyDelete")
+                            .param("commentURI", fourteenthCommentURI))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            jdbcTemplate.update("UPDATE comments SET path = ? WHERE id = 14", path);
+        }
+    }
+
     @Test
     @Order(9)
     @WithMockUser("new_user")
@@ -257,4 +365,12 @@ public class CommentTests {
         mockMvc.perform(get("/comment/" + fourteenthCommentURI))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    @Order(10)
+    @WithMockUser("new_user")
+    public void getComment_WithReplyToFourteenthComment_AsNewUser_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/comment/this-is-a-comment-on-fourteenth-15"))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,212 @@
+package com.example.bloggingapp.test;
+
+import com.example.bloggingapp.config.FileStorageConfig;
+import com.example.bloggingapp.dto.ImageCacheStatsDto;
+import com.example.bloggingapp.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestPropertySource("classpath:application-test.properties")
+public class ImageTests {
+    @Autowired
+    private MockMvc mockMvc;
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    // test.png under the name of an upload saved before variants existed
+    private final String testImage = "00000000-0000-0000-0000-000000000000.png";
+
+    @BeforeEach
+    void copyTestImage() throws Exception {
+        Path path = Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, testImage);
+        if (!Files.exists(path)) {
+            Files.copy(Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, "test.png"), path);
+        }
+    }
+
+    @Test
+    @Order(0)
+    void contextLoads() {
+    }
+
+    @Test
+    @Order(1)
+    void getImage_WithTestImage_ShouldReturnOk() throws Exception {
+        mockMvc.perform(get("/image/" + testImage))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + testImage + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    @Order(1)
+    void getImage_WithTestImage_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        mockMvc.perform(get("/image/" + testImage)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + testImage + "\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Order(1)
+    void getImage_WithNonExistentImage_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/image/non-existent.png"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(1)
+    void getImage_WithNameNotOfAnUpload_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/image/test.png"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(1)
+    void getImage_WithPathOutsideImageDir_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/image/{name}", "../test.png"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(2)
+    void getImage_WithNewUsersProfilePicture_ShouldReturnOk() throws Exception {
+        MvcResult result = mockMvc.perform(get("/user/new_user"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String profilePicture = objectMapper.readValue(result.getResponse().getContentAsString(), UserDto.class).profilePicture();
+        assertTrue(profilePicture.startsWith("/image/"));
+        assertTrue(profilePicture.endsWith("?size=128"));
+        mockMvc.perform(get(profilePicture))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, containsString("_128.")));
+    }
+
+    @Test
+    @Order(2)
+    void getImage_WithTestImage_WithSizeWithoutVariant_ShouldReturnOriginal() throws Exception {
+        mockMvc.perform(get("/image/" + testImage)
+                        .param("size", "48"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + testImage + "\""));
+    }
+
+    @Test
+    @Order(2)
+    void getImage_WithTestImage_WithInvalidSize_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/image/" + testImage)
+                        .param("size", "100"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(3)
+    @WithMockUser(value = "first_user")
+    void changeProfilePicture_WithTextFileNamedPng_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(multipart("/user/changeProfilePicture")
+                        .file(new MockMultipartFile("newProfilePicture", "fake.png", "image/png", "not an image".getBytes())))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(3)
+    @WithMockUser(value = "first_user")
+    void changeProfilePicture_WithUndecodablePng_ShouldLeaveNoFiles() throws Exception {
+        byte[] header = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0};
+        List<Path> before;
+        try (Stream<Path> files = Files.walk(Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR))) {
+            before = files.filter(Files::isRegularFile).toList();
+        }
+        mockMvc.perform(multipart("/user/changeProfilePicture")
+                        .file(new MockMultipartFile("newProfilePicture", "broken.png", "image/png", header)))
+                .andExpect(status().isBadRequest());
+        try (Stream<Path> files = Files.walk(Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR))) {
+            assertEquals(before, files.filter(Files::isRegularFile).toList());
+        }
+    }
+
+    @Test
+    @Order(3)
+    @WithMockUser(value = "first_user")
+    void changeProfilePicture_WithPngNamedJpg_ShouldReturnOk() throws Exception {
+        byte[] png = Files.readAllBytes(Paths.get(FileStorageConfig.PROFILE_PICTURE_DIR, "test.png"));
+        mockMvc.perform(multipart("/user/changeProfilePicture")
+                        .file(new MockMultipartFile("newProfilePicture", "photo.jpg", "image/jpeg", png)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @Order(4)
+    void getUser_WithFirstUser_AfterPngUpload_ShouldReferencePngVariant() throws Exception {
+        MvcResult result = mockMvc.perform(get("/user/first_user"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String profilePicture = objectMapper.readValue(result.getResponse().getContentAsString(), UserDto.class).profilePicture();
+        assertTrue(profilePicture.endsWith(".png?size=128"));
+        mockMvc.perform(get(profilePicture))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG));
+    }
+
+    @Test
+    @Order(5)
+    @WithMockUser(value = "admin_user", roles = "ADMIN")
+    void getImage_WithTestImage_Twice_ShouldBeServedFromCache() throws Exception {
+        mockMvc.perform(get("/image/" + testImage))
+                .andExpect(status().isOk());
+        ImageCacheStatsDto before = imageCacheStats();
+        mockMvc.perform(get("/image/" + testImage))
+                .andExpect(status().isOk());
+        ImageCacheStatsDto after = imageCacheStats();
+        assertEquals(before.hitCount() + 1, after.hitCount());
+        assertEquals(before.missCount(), after.missCount());
+    }
+
+    @Test
+    @Order(5)
+    @WithMockUser(value = "first_user")
+    void imageCache_AsFirstUser_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(get("/admin/imageCache"))
+                .andExpect(status().isForbidden());
+    }
+
+    private ImageCacheStatsDto imageCacheStats() throws Exception {
+        MvcResult result = mockMvc.perform(get("/admin/imageCache"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), ImageCacheStatsDto.class);
+    }
+}
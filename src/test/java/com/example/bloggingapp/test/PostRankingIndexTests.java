@@ -0,0 +1,71 @@
+package com.example.bloggingapp.test;
+
+import com.example.bloggingapp.dto.PostRankDto;
+import com.example.bloggingapp.repository.PostRepository;
+import com.example.bloggingapp.service.impl.PostRankingIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PostRankingIndexTests {
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final PostRankingIndex postRankingIndex = new PostRankingIndex(postRepository, 500);
+    private final CountDownLatch rebuildStarted = new CountDownLatch(1);
+    private final CountDownLatch rebuildReleased = new CountDownLatch(1);
+
+    @Test
+    void page_WhileFirstRebuildRuns_ShouldDeferToDatabase() throws Exception {
+        blockRebuild();
+        checkDeferredWhileRebuilding();
+    }
+
+    @Test
+    void page_WhileRebuildAfterInvalidateRuns_ShouldDeferToDatabase() throws Exception {
+        when(postRepository.findRanking(any(Limit.class))).thenReturn(List.of(new PostRankDto(1L, 5, 1L)));
+        postRankingIndex.page(null, 10, Set.of());
+        postRankingIndex.invalidate();
+        blockRebuild();
+        checkDeferredWhileRebuilding();
+    }
+
+    private void blockRebuild() {
+        when(postRepository.findRanking(any(Limit.class))).thenAnswer(invocation -> {
+            rebuildStarted.countDown();
+            rebuildReleased.await();
+            return List.of(new PostRankDto(1L, 5, 1L));
+        });
+    }
+
+    private void checkDeferredWhileRebuilding() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<PostRankingIndex.Page> rebuilding = executor.submit(() -> postRankingIndex.page(null, 10, Set.of()));
+            if (!rebuildStarted.await(5, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Rebuild didn't start");
+            }
+            PostRankingIndex.Page page = postRankingIndex.page(null, 10, Set.of());
+            if (page.complete() || !page.postIds().isEmpty() || page.continueAfter() != null) {
+                throw new RuntimeException("Page served before the ranking was loaded: " + page);
+            }
+            rebuildReleased.countDown();
+            page = rebuilding.get(5, TimeUnit.SECONDS);
+            if (!page.complete() || !page.postIds().equals(List.of(1L))) {
+                throw new RuntimeException("Wrong page after rebuild: " + page);
+            }
+        } finally {
+            rebuildReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
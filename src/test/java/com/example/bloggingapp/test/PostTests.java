@@ -4,7 +4,10 @@ import com.example.bloggingapp.dto.CommentDto;
 import com.example.bloggingapp.dto.PostDto;
 import com.example.bloggingapp.dto.PostPreviewDto;
 import com.example.bloggingapp.dto.request.CreatePostRequest;
+import com.example.bloggingapp.repository.UserRepository;
 import com.example.bloggingapp.service.TestService;
+import com.example.bloggingapp.service.impl.PostRankingIndex;
+import com.example.bloggingapp.service.impl.RatingFlushScheduler;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -25,8 +28,15 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -45,6 +55,12 @@ public class PostTests {
     */
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private RatingFlushScheduler ratingFlushScheduler;
+    @Autowired
+    private PostRankingIndex postRankingIndex;
+    @Autowired
+    private UserRepository userRepository;
     private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
     private final ObjectWriter objectWriter = objectMapper.writer().withDefaultPrettyPrinter();
     private final TestService testService;
@@ -127,6 +143,100 @@ public class PostTests {
         testService.checkAllowViewingPostPreviewDtos(postPreviewDtos, "new_user");
     }
 
+    @Test
+    @Order(3)
+    @Transactional
+    public void getNPosts_WithPageSizeOne_ShouldReturnOrderedPages() throws Exception {
+        List<PostPreviewDto> all = objectMapper.readValue(mockMvc.perform(get("/post/").param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        List<PostPreviewDto> paged = new ArrayList<>();
+        List<PostPreviewDto> page = objectMapper.readValue(mockMvc.perform(get("/post/").param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        while (!page.isEmpty()) {
+            assertEquals(1, page.size());
+            paged.addAll(page);
+            PostPreviewDto last = page.get(page.size() - 1);
+            page = objectMapper.readValue(mockMvc.perform(get("/post/")
+                            .param("size", "1")
+                            .param("afterRating", String.valueOf(last.rating()))
+                            .param("afterId", String.valueOf(last.id())))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+            });
+        }
+        assertFalse(all.isEmpty());
+        assertEquals(all, paged);
+        for (int i = 1; i < all.size(); i++) {
+            PostPreviewDto previous = all.get(i - 1);
+            PostPreviewDto current = all.get(i);
+            assertTrue(previous.rating() > current.rating() || previous.rating().equals(current.rating()) && previous.id() < current.id());
+        }
+    }
+
+    @Test
+    @Order(3)
+    @Transactional
+    public void getHotPosts_ShouldReturnRecentPostsOrderedByHotScore() throws Exception {
+        List<PostPreviewDto> feed = objectMapper.readValue(mockMvc.perform(get("/post/")
+                        .param("mode", "HOT")
+                        .param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        assertTrue(feed.stream().anyMatch(post -> post.id() == 4));
+        assertTrue(feed.stream().allMatch(post -> post.date().isAfter(LocalDate.now().minusDays(8))));
+        for (int i = 1; i < feed.size(); i++) {
+            assertTrue(feed.get(i - 1).hotScore() >= feed.get(i).hotScore());
+        }
+    }
+
+    @Test
+    @Order(3)
+    @Transactional
+    @WithMockUser("third_user")
+    public void getHotPosts_AsThirdUser_ShouldNotContainBlockedUsersPosts() throws Exception {
+        List<PostPreviewDto> feed = objectMapper.readValue(mockMvc.perform(get("/post/")
+                        .param("mode", "HOT")
+                        .param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        assertTrue(feed.stream().noneMatch(post -> post.id() == 4));
+        testService.checkAllowViewingPostPreviewDtos(new HashSet<>(feed), "third_user");
+    }
+
+    @Test
+    @Order(3)
+    public void getHotPosts_WithOnlyAfterScore_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/post/").param("mode", "HOT").param("afterScore", "1.5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(3)
+    public void getNPosts_WithInvalidMode_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/post/").param("mode", "NEWEST"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(3)
+    public void getNPosts_WithOnlyAfterRating_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/post/").param("afterRating", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(3)
+    public void getNPosts_WithSizeZero_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/post/").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Order(3)
     public void getComments_WithFirstPost_ShouldReturnCommentDtos() throws Exception {
@@ -136,6 +246,52 @@ public class PostTests {
         testService.checkAllowViewingCommentDtos(commentDtos, "");
     }
 
+    @Test
+    @Order(3)
+    public void getPost_WithFirstPost_ShouldReturnCommentTree() throws Exception {
+        PostDto postDto = objectMapper.readValue(mockMvc.perform(get("/post/" + firstPostURI))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), PostDto.class);
+        assertTrue(postDto.comments().stream().noneMatch(comment -> comment.id() == 8));
+        CommentDto fifthComment = postDto.comments().stream().filter(comment -> comment.id() == 5).findFirst().orElseThrow();
+        assertTrue(fifthComment.comments().stream().anyMatch(comment -> comment.id() == 8));
+        assertTrue(fifthComment.comments().stream().noneMatch(comment -> comment.id() == 10 || comment.id() == 11));
+        assertEquals(2, fifthComment.comments().size());
+        assertTrue(fifthComment.hasMoreReplies());
+        testService.checkAllowViewingPostDto(postDto, "");
+    }
+
+    @Test
+    @Order(3)
+    public void getPost_WithFirstPost_ShouldReturnViewableCommentCount() throws Exception {
+        PostDto postDto = objectMapper.readValue(mockMvc.perform(get("/post/" + firstPostURI))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), PostDto.class);
+        assertEquals(6, postDto.commentCount());
+    }
+
+    @Test
+    @Order(3)
+    public void getComments_WithFirstPost_WithPageSizeOne_ShouldReturnOrderedPages() throws Exception {
+        List<CommentDto> first = objectMapper.readValue(mockMvc.perform(get("/post/" + firstPostURI + "/comments").param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        assertEquals(1, first.size());
+        assertEquals(1, first.get(0).id());
+        List<CommentDto> second = objectMapper.readValue(mockMvc.perform(get("/post/" + firstPostURI + "/comments")
+                        .param("size", "1")
+                        .param("afterRating", String.valueOf(first.get(0).rating()))
+                        .param("afterId", String.valueOf(first.get(0).id())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        assertEquals(1, second.size());
+        assertEquals(5, second.get(0).id());
+        mockMvc.perform(get("/post/" + firstPostURI + "/comments").param("afterId", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Order(3)
     @WithMockUser("new_user")
@@ -178,6 +334,22 @@ public class PostTests {
         testService.checkAllowViewingPostDto(postDto, "first_user");
     }
 
+    @Test
+    @Order(3)
+    public void getPost_WithMismatchedTitle_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/post/first-users-post-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Order(3)
+    @WithMockUser("first_user")
+    public void like_WithMismatchedTitle_AsFirstUser_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(post("/post/like")
+                        .param("postURI", "first-users-post-2"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @Order(3)
     public void getPost_WithPrivateUsersPost_ShouldReturnNotFound() throws Exception {
@@ -221,6 +393,32 @@ public class PostTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @Order(6)
+    public void getNPosts_WithDeletedFourthPost_ShouldNotContainIt() throws Exception {
+        List<PostPreviewDto> feed = objectMapper.readValue(mockMvc.perform(get("/post/").param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        assertTrue(feed.stream().noneMatch(post -> post.id() == 4));
+    }
+
+    @Test
+    @Order(6)
+    public void getNPosts_WithDeletedFourthPostInRanking_ShouldNotContainIt() throws Exception {
+        postRankingIndex.reconcile();
+        postRankingIndex.put(4L, Integer.MAX_VALUE, userRepository.findByUsername("new_user").orElseThrow().getId());
+        try {
+            List<PostPreviewDto> feed = objectMapper.readValue(mockMvc.perform(get("/post/").param("size", "50"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertTrue(feed.stream().noneMatch(post -> post.id() == 4));
+        } finally {
+            postRankingIndex.remove(4L);
+        }
+    }
+
     @Test
     @Order(7)
     @WithMockUser("new_user")
@@ -248,6 +446,20 @@ public class PostTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Order(8)
+    @WithMockUser("new_user")
+    public void removeLike_WithDislikedFourthPost_AsNewUser_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/post/dislike")
+                .param("postURI", fourthPostURI));
+        mockMvc.perform(post("/post/removeLike")
+                        .param("postURI", fourthPostURI))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/post/dislike")
+                        .param("postURI", fourthPostURI))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Order(8)
     @WithMockUser("new_user")
@@ -257,6 +469,21 @@ public class PostTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @Order(9)
+    public void getNPosts_WithUndeletedFourthPost_ShouldContainItWithCurrentRating() throws Exception {
+        ratingFlushScheduler.flush();
+        List<PostPreviewDto> feed = objectMapper.readValue(mockMvc.perform(get("/post/").param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        PostPreviewDto fourthPost = feed.stream().filter(post -> post.id() == 4).findFirst().orElseThrow();
+        assertEquals(1, Math.abs(fourthPost.rating()));
+        for (int i = 1; i < feed.size(); i++) {
+            assertTrue(feed.get(i - 1).rating() >= feed.get(i).rating());
+        }
+    }
+
     @Test
     @Order(9)
     @WithMockUser("new_user")
@@ -4,6 +4,6 @@ import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
 
 @Suite
-@SelectClasses({AuthTests.class, UserTests.class, PostTests.class, CommentTests.class, AdminTests.class})
+@SelectClasses({AuthTests.class, UserTests.class, PostTests.class, CommentTests.class, AdminTests.class, ImageTests.class, PostRankingIndexTests.class})
 public class TestSuite {
 }
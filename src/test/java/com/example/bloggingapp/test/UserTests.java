@@ -3,6 +3,7 @@ package com.example.bloggingapp.test;
 import com.example.bloggingapp.dto.CommentDto;
 import com.example.bloggingapp.dto.PostPreviewDto;
 import com.example.bloggingapp.dto.UserDto;
+import com.example.bloggingapp.dto.UserFollowDto;
 import com.example.bloggingapp.dto.request.EmailChangeRequest;
 import com.example.bloggingapp.dto.request.PasswordChangeRequest;
 import com.example.bloggingapp.dto.request.RegisterRequest;
@@ -28,6 +29,7 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
 import java.util.Set;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -99,6 +101,34 @@ public class UserTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @Order(3)
+    void getFollowers_WithNewUser_ShouldReturnFifthUser() throws Exception {
+        MvcResult result = mockMvc.perform(get("/user/new_user/followers").param("size", "1")).andExpect(status().isOk()).andReturn();
+        List<UserFollowDto> followers = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        if (!followers.equals(List.of(new UserFollowDto("fifth_user")))) {
+            throw new RuntimeException("Wrong followers");
+        }
+        result = mockMvc.perform(get("/user/new_user/followers").param("size", "1").param("afterUsername", "fifth_user")).andExpect(status().isOk()).andReturn();
+        followers = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        if (!followers.isEmpty()) {
+            throw new RuntimeException("Wrong second page");
+        }
+    }
+
+    @Test
+    @Order(3)
+    void getUser_WithNewUser_ShouldReturnFollowerCount() throws Exception {
+        MvcResult result = mockMvc.perform(get("/user/new_user")).andExpect(status().isOk()).andReturn();
+        UserDto userDto = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        if (userDto.followerCount() != 1) {
+            throw new RuntimeException("Wrong follower count");
+        }
+    }
+
     @Test
     @Order(4)
     @WithMockUser("new_user")
@@ -122,6 +152,29 @@ public class UserTests {
         mockMvc.perform(post("/user/undelete")).andExpect(status().isOk());
     }
 
+    @Test
+    @Order(7)
+    @WithMockUser("new_user")
+    void goPrivate_AsNewUser_ShouldChangeFifthUserFollowingCount() throws Exception {
+        mockMvc.perform(post("/user/goPrivate")).andExpect(status().isOk());
+        try {
+            MvcResult result = mockMvc.perform(get("/user/fifth_user")).andExpect(status().isOk()).andReturn();
+            UserDto userDto = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            if (userDto.followingCount() != 0) {
+                throw new RuntimeException("Private user counted as followed");
+            }
+        } finally {
+            mockMvc.perform(post("/user/goPublic")).andExpect(status().isOk());
+        }
+        MvcResult result = mockMvc.perform(get("/user/fifth_user")).andExpect(status().isOk()).andReturn();
+        UserDto userDto = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        if (userDto.followingCount() != 1) {
+            throw new RuntimeException("Wrong following count");
+        }
+    }
+
     @Test
     @Order(7)
     void getUser_WithFirstUser_ShouldReturnFirstUserDto() throws Exception {
@@ -153,6 +206,23 @@ public class UserTests {
         testService.checkAllowViewingCommentDtos(commentsDto, "new_user");
     }
 
+    @Test
+    @Order(7)
+    void getComments_WithFirstUser_AfterId_ShouldReturnNextPageByCreatedAt() throws Exception {
+        MvcResult result = mockMvc.perform(get("/user/first_user/comments").param("size", "2")).andExpect(status().isOk()).andReturn();
+        List<CommentDto> firstPage = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        if (!firstPage.stream().map(CommentDto::id).toList().equals(List.of(13L, 8L))) {
+            throw new RuntimeException("Wrong first page");
+        }
+        result = mockMvc.perform(get("/user/first_user/comments").param("size", "2").param("afterId", "8")).andExpect(status().isOk()).andReturn();
+        List<CommentDto> secondPage = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        if (!secondPage.stream().map(CommentDto::id).toList().equals(List.of(5L))) {
+            throw new RuntimeException("Wrong second page");
+        }
+    }
+
     @Test
     @Order(8)
     @WithMockUser("new_user")
@@ -10,7 +10,9 @@ create table users
     is_enabled  bit          not null,
     is_deleted  bit          not null,
     description varchar(200) null,
-    profile_picture_name varchar(50) null
+    profile_picture_name varchar(50) null,
+    follower_count       int         null,
+    following_count      int         null
 );
 
 create table posts
@@ -19,22 +21,41 @@ create table posts
         primary key,
     title               varchar(200)   not null,
     content             varchar(15000) not null,
+    slug                varchar(100)   null,
     rating              int            not null,
+    comment_count       int            null,
     user_id             bigint         not null,
     created_at          datetime       null,
     is_deleted          bit            not null,
     is_hidden           bit            not null,
     is_deleted_by_admin bit            not null,
+    hot_score           double         not null default 0,
     constraint FK5lidm6cqbc7u4xhqpxm898qme
         foreign key (user_id) references users (id)
             on delete cascade
 );
 
+create index idx_posts_feed
+    on posts (is_deleted, is_hidden, is_deleted_by_admin, rating desc, id);
+
+create index idx_posts_hot
+    on posts (is_deleted, is_hidden, is_deleted_by_admin, hot_score desc, id);
+
+create index idx_posts_created_at
+    on posts (created_at);
+
+create unique index idx_posts_slug
+    on posts (slug, id);
+
+create index idx_posts_user_created_at
+    on posts (user_id, created_at desc, id desc);
+
 create table comments
 (
     id                  bigint auto_increment
         primary key,
     content             varchar(1000) not null,
+    slug                varchar(100)  null,
     rating              int           not null,
     user_id             bigint        not null,
     created_at          datetime      null,
@@ -43,6 +64,8 @@ create table comments
     is_deleted          bit           not null,
     is_hidden           bit           not null,
     is_deleted_by_admin bit           not null,
+    path                varchar(759)  null,
+    depth               int           not null default 0,
     constraint FK8omq0tc18jd43bu5tjh6jvraq
         foreign key (user_id) references users (id)
             on delete cascade,
@@ -54,6 +77,21 @@ create table comments
             on delete cascade
 );
 
+create index idx_comments_path
+    on comments (path);
+
+create unique index idx_comments_slug
+    on comments (slug, id);
+
+create index idx_comments_user_created_at
+    on comments (user_id, created_at desc, id desc);
+
+create index idx_comments_post_rating
+    on comments (parent_post_id, parent_comment_id, rating desc, id);
+
+create index idx_comments_parent_rating
+    on comments (parent_comment_id, rating desc, id);
+
 create table blocked_users
 (
     user_id   bigint not null,
@@ -70,6 +108,7 @@ create table followers
 (
     user_id   bigint not null,
     parent_id bigint not null,
+    primary key (user_id, parent_id),
     constraint followers_users_id_fk
         foreign key (user_id) references users (id)
             on delete cascade,
@@ -78,6 +117,9 @@ create table followers
             on delete cascade
 );
 
+create index idx_followers_parent_id
+    on followers (parent_id, user_id);
+
 create table user_roles
 (
     user_id bigint                 not null,
@@ -87,48 +129,37 @@ create table user_roles
             on delete cascade
 );
 
-create table post_likes
-(
-    user_id bigint not null,
-    post_id bigint not null,
-    constraint post_id_post_like_fk
-        foreign key (post_id) references posts (id)
-            on delete cascade,
-    constraint user_id_post_like_fk
-        foreign key (user_id) references users (id)
-            on delete cascade
-);
-
-create table post_dislikes
+create table post_reactions
 (
-    user_id bigint not null,
-    post_id bigint not null,
-    constraint post_id_post_dislike_fk
+    post_id  bigint not null,
+    user_id  bigint not null,
+    reaction int    not null,
+    primary key (post_id, user_id),
+    constraint post_id_post_reaction_fk
         foreign key (post_id) references posts (id)
             on delete cascade,
-    constraint user_id_post_dislike_fk
+    constraint user_id_post_reaction_fk
         foreign key (user_id) references users (id)
             on delete cascade
 );
 
-create table comment_likes
+create table comment_reactions
 (
-    user_id    bigint not null,
     comment_id bigint not null,
-    constraint comment_id_comment_like_fk
-        foreign key (comment_id) references comments (id),
-    constraint user_id_comment_like_fk
-        foreign key (user_id) references users (id)
-);
-
-create table comment_dislikes
-(
     user_id    bigint not null,
-    comment_id bigint not null,
-    constraint comment_id_comment_dislike_fk
+    reaction   int    not null,
+    primary key (comment_id, user_id),
+    constraint comment_id_comment_reaction_fk
         foreign key (comment_id) references comments (id)
             on delete cascade,
-    constraint user_id_comment_dislike_fk
+    constraint user_id_comment_reaction_fk
         foreign key (user_id) references users (id)
             on delete cascade
+);
+
+create table data_migrations
+(
+    name         varchar(100) not null
+        primary key,
+    completed_at datetime     null
 );
\ No newline at end of file